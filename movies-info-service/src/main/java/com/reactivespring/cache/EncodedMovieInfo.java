@@ -0,0 +1,15 @@
+package com.reactivespring.cache;
+
+import lombok.Value;
+import org.springframework.http.MediaType;
+
+/**
+ * A MovieInfo as written to the response body, with the entity tag of those bytes.
+ */
+@Value
+public class EncodedMovieInfo {
+
+    MediaType contentType;
+    byte[] body;
+    String eTag;
+}
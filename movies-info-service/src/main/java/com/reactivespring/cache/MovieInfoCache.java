@@ -0,0 +1,144 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieInfoEventLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of MovieInfos by id. Concurrent misses for the same id share one repository lookup, and
+ * ids that were not found are remembered for {@code movieInfo.cache.negativeTtl}. Besides the explicit updates
+ * from the write paths, entries follow the {@link MovieInfoEventLog}, so writes made through other instances
+ * reach this cache when the change-stream feed is used. If the cache falls so far behind that the events it has
+ * not applied yet are no longer retained, it is cleared.
+ */
+@Component
+@Slf4j
+public class MovieInfoCache {
+
+    private final boolean enabled;
+    private final AsyncCache<String, Optional<MovieInfo>> cache;
+    private final MovieInfoEventLog movieInfoEventLog;
+    private Disposable events;
+
+    public MovieInfoCache(@Value("${movieInfo.cache.enabled:true}") boolean enabled,
+                          @Value("${movieInfo.cache.maxSize:10000}") long maxSize,
+                          @Value("${movieInfo.cache.ttl:10m}") Duration ttl,
+                          @Value("${movieInfo.cache.negativeTtl:30s}") Duration negativeTtl,
+                          MovieInfoEventLog movieInfoEventLog,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.movieInfoEventLog = movieInfoEventLog;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PositiveNegativeExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "movieInfoById");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            // the cache starts out empty, so only the events after the latest sequence can affect it; every retry
+            // starts over from the sequence that is latest by then
+            events = Flux.defer(movieInfoEventLog::liveEvents)
+                    .doOnError(ex -> {
+                        log.warn("MovieInfo cache missed events, clearing it : {}", ex.toString());
+                        cache.synchronous().invalidateAll();
+                    })
+                    .retry()
+                    .subscribe(this::apply);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (events != null) {
+            events.dispose();
+        }
+    }
+
+    public Mono<MovieInfo> get(String movieInfoId, Function<String, Mono<MovieInfo>> loader) {
+        if (!enabled) {
+            return loader.apply(movieInfoId);
+        }
+        var cached = cache.get(movieInfoId, (id, executor) -> loader.apply(id)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .toFuture());
+        // a dependent stage, so one cancelled caller does not cancel the lookup the others are waiting on
+        return Mono.fromFuture(cached.thenApply(Function.identity()))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    public void put(MovieInfo movieInfo) {
+        if (enabled && movieInfo.getMovieInfoId() != null) {
+            cache.put(movieInfo.getMovieInfoId(), CompletableFuture.completedFuture(Optional.of(movieInfo)));
+        }
+    }
+
+    public void evict(String movieInfoId) {
+        if (enabled) {
+            cache.synchronous().invalidate(movieInfoId);
+        }
+    }
+
+    /**
+     * Changes announced by the event log only replace entries that are already cached, so writes to MovieInfos
+     * nobody reads do not take up space.
+     */
+    private void apply(MovieInfoEvent event) {
+        var movieInfo = event.getMovieInfo();
+        if (event.getType() == MovieInfoEvent.Type.DELETE) {
+            evict(movieInfo.getMovieInfoId());
+        } else if (cache.asMap().containsKey(movieInfo.getMovieInfoId())) {
+            put(movieInfo);
+        }
+    }
+
+    private static class PositiveNegativeExpiry implements Expiry<String, Optional<MovieInfo>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        PositiveNegativeExpiry(long ttlNanos, long negativeTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<MovieInfo> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<MovieInfo> value, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<MovieInfo> value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
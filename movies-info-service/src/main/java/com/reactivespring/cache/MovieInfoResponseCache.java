@@ -0,0 +1,98 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.EncoderHttpMessageWriter;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the encoded response body of each MovieInfo served by id, per content type, so reads of a cached
+ * MovieInfo skip serialization. Entries are keyed by the MovieInfo instance held in {@link MovieInfoCache}:
+ * an update or delete replaces or drops that instance, which makes the encoded bytes unreachable with it.
+ * Bodies are produced by the application's own encoders, so they match what the regular write path produces.
+ */
+@Component
+public class MovieInfoResponseCache {
+
+    private static final ResolvableType MOVIE_INFO_TYPE = ResolvableType.forClass(MovieInfo.class);
+
+    private final boolean enabled;
+    private final Cache<MovieInfo, Map<MediaType, EncodedMovieInfo>> cache;
+    private final List<Encoder<?>> encoders;
+
+    public MovieInfoResponseCache(@Value("${movieInfo.cache.responses.enabled:true}") boolean enabled,
+                                  @Value("${movieInfo.cache.responses.maxSize:10000}") long maxSize,
+                                  ServerCodecConfigurer serverCodecConfigurer) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(maxSize)
+                .build();
+        this.encoders = serverCodecConfigurer.getWriters().stream()
+                .filter(EncoderHttpMessageWriter.class::isInstance)
+                .map(writer -> ((EncoderHttpMessageWriter<?>) writer).getEncoder())
+                .filter(encoder -> encoder.canEncode(MOVIE_INFO_TYPE, null))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The body for the first {@code acceptable} media type a MovieInfo can be encoded to, or empty when
+     * none can be produced.
+     */
+    public Optional<EncodedMovieInfo> encode(MovieInfo movieInfo, List<MediaType> acceptable) {
+        for (var mediaType : acceptable) {
+            var contentType = contentType(mediaType);
+            if (contentType != null) {
+                if (!enabled) {
+                    return Optional.of(encode(movieInfo, contentType));
+                }
+                return Optional.of(cache.get(movieInfo, key -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(contentType, type -> encode(movieInfo, type)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private MediaType contentType(MediaType acceptable) {
+        for (var encoder : encoders) {
+            for (var mimeType : encoder.getEncodableMimeTypes(MOVIE_INFO_TYPE)) {
+                if (acceptable.isCompatibleWith(mimeType) && mimeType.isConcrete()) {
+                    return new MediaType(mimeType);
+                }
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private EncodedMovieInfo encode(MovieInfo movieInfo, MediaType contentType) {
+        var encoder = (Encoder<MovieInfo>) encoders.stream()
+                .filter(candidate -> candidate.canEncode(MOVIE_INFO_TYPE, contentType))
+                .findFirst()
+                .orElseThrow();
+        var buffer = encoder.encodeValue(movieInfo, DefaultDataBufferFactory.sharedInstance, MOVIE_INFO_TYPE,
+                contentType, Map.of());
+        try {
+            var body = new byte[buffer.readableByteCount()];
+            buffer.read(body);
+            return new EncodedMovieInfo(contentType, body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
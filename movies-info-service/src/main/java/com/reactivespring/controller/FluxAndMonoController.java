@@ -1,5 +1,6 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.trace.SignalTracer;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -11,18 +12,24 @@ import java.time.Duration;
 @RestController
 public class FluxAndMonoController {
 
+    private final SignalTracer signalTracer;
+
+    public FluxAndMonoController(SignalTracer signalTracer) {
+        this.signalTracer = signalTracer;
+    }
+
     @GetMapping("/flux")
     public Flux<Integer> flux() {
-        return Flux.just(1, 2, 3).log();
+        return Flux.just(1, 2, 3).transform(signalTracer.flux("flux"));
     }
 
     @GetMapping("/mono")
     public Mono<String> helloworldMono() {
-        return Mono.just("Hello World").log();
+        return Mono.just("Hello World").transform(signalTracer.mono("mono"));
     }
 
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<Long> stream() {
-        return Flux.interval(Duration.ofSeconds(1)).log();
+        return Flux.interval(Duration.ofSeconds(1)).transform(signalTracer.flux("stream"));
     }
 }
@@ -1,57 +1,140 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.cache.MovieInfoResponseCache;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBulkResult;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieInfoSearchIndex;
 import com.reactivespring.service.MoviesInfoService;
+import com.reactivespring.trace.SignalTracer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/v1")
 @Slf4j
 public class MoviesInfoController {
+    /**
+     * Carries the opaque token to pass as {@code after} for the next page; absent on the last page.
+     */
+    public static final String CONTINUATION_HEADER = "X-Continuation-Token";
+
     private MoviesInfoService moviesInfoService;
 
-    Sinks.Many<MovieInfo> movieInfoSinks = Sinks.many().replay().all();
+    private SignalTracer signalTracer;
+
+    private MovieInfoResponseCache movieInfoResponseCache;
 
-    public MoviesInfoController(MoviesInfoService moviesInfoService) {
+    public MoviesInfoController(MoviesInfoService moviesInfoService, SignalTracer signalTracer,
+                                MovieInfoResponseCache movieInfoResponseCache) {
         this.moviesInfoService = moviesInfoService;
+        this.signalTracer = signalTracer;
+        this.movieInfoResponseCache = movieInfoResponseCache;
     }
 
     @PostMapping("/moviesInfo")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
-        return moviesInfoService.addMovieInfo(movieInfo).log()
-                .doOnNext(savedInfo -> movieInfoSinks.tryEmitNext(savedInfo));
+        return moviesInfoService.addMovieInfo(movieInfo)
+                .transform(signalTracer.mono("addMovieInfo"));
+    }
+
+    @PostMapping(value = "/moviesInfo/bulk",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfoBulkResult> addMovieInfos(@RequestBody Flux<MovieInfo> movieInfos) {
+        return moviesInfoService.addMovieInfos(movieInfos)
+                .transform(signalTracer.flux("addMovieInfos"));
     }
 
     @GetMapping("/moviesInfo")
-    public Flux<MovieInfo> getAllMoviesInfo(@RequestParam(name = "year", required = false) Integer year) {
+    public Mono<ResponseEntity<List<MovieInfo>>> getAllMoviesInfo(
+            @RequestParam(name = "year", required = false) Integer year,
+            @RequestParam(name = "ids", required = false) List<String> ids,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", required = false) Integer limit) {
         log.info("year is : {}", year);
-        if (year != null) {
-            return moviesInfoService.getMovieInfoByYear(year).log();
+        if (ids != null) {
+            return moviesInfoService.getMovieInfoByIds(ids)
+                    .transform(signalTracer.flux("getMovieInfoByIds"))
+                    .collectList()
+                    .map(ResponseEntity::ok);
         }
-        return moviesInfoService.getAllMoviesInfo().log();
+        var afterId = after == null ? null : decodeContinuation(after);
+        return moviesInfoService.getMovieInfoPage(year, afterId, limit)
+                .transform(signalTracer.mono("getMovieInfoPage"))
+                .map(page -> {
+                    var response = ResponseEntity.ok();
+                    if (page.getLastMovieInfoId() != null) {
+                        response.header(CONTINUATION_HEADER, encodeContinuation(page.getLastMovieInfoId()));
+                    }
+                    return response.body(page.getMovieInfos());
+                });
+    }
+
+    @GetMapping("/moviesInfo/search")
+    public Flux<MovieInfo> searchMovieInfos(@RequestParam(name = "q") String query,
+                                            @RequestParam(name = "field", required = false) String field,
+                                            @RequestParam(name = "limit", required = false) Integer limit) {
+        return moviesInfoService.searchMovieInfos(query, searchField(field), limit)
+                .transform(signalTracer.flux("searchMovieInfos"));
     }
 
+    /**
+     * Writes the cached encoded body of the MovieInfo; the ETag is derived from those bytes, so a matching
+     * {@code If-None-Match} is answered with 304.
+     */
     @GetMapping("/moviesInfo/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
+    public Mono<ResponseEntity<DataBuffer>> getMovieInfoById(@PathVariable String id, ServerHttpRequest request,
+                                                             ServerHttpResponse response) {
+        var acceptable = new ArrayList<>(request.getHeaders().getAccept());
+        if (acceptable.isEmpty()) {
+            acceptable.add(MediaType.ALL);
+        }
+        MediaType.sortBySpecificityAndQuality(acceptable);
         return moviesInfoService.getMovieInfoById(id)
-                .map(ResponseEntity.ok()::body)
+                .map(movieInfo -> movieInfoResponseCache.encode(movieInfo, acceptable)
+                        .map(encoded -> ResponseEntity.ok()
+                                .contentType(encoded.getContentType())
+                                .eTag(encoded.getETag())
+                                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                                .body(response.bufferFactory().wrap(encoded.getBody())))
+                        .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build()))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(signalTracer.mono("getMovieInfoById"));
     }
 
     @GetMapping(value = "/moviesInfo/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> getMovieInfoById() {
-        return movieInfoSinks.asFlux();
+        return moviesInfoService.getRetainedMovieInfoEvents()
+                .map(MovieInfoEvent::getMovieInfo);
+    }
+
+    @GetMapping(value = "/moviesInfo/events", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfoEvent> getMovieInfoEvents(@RequestParam(name = "after", required = false) Long after,
+                                                   @RequestParam(name = "epoch", required = false) String epoch,
+                                                   @RequestParam(name = "live", defaultValue = "false") boolean live) {
+        if (after == null) {
+            return live ? moviesInfoService.getLiveMovieInfoEvents() : moviesInfoService.getRetainedMovieInfoEvents();
+        }
+        return moviesInfoService.getMovieInfoEvents(epoch, after);
     }
 
     @PutMapping("/moviesInfo/{id}")
@@ -59,12 +142,44 @@ public class MoviesInfoController {
         return moviesInfoService.updateMovieInfo(movieInfo, id)
                 .map(ResponseEntity.ok()::body)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(signalTracer.mono("updateMovieInfo"));
+    }
+
+    @PatchMapping("/moviesInfo/{id}")
+    public Mono<ResponseEntity<MovieInfo>> patchMovieInfo(@RequestBody MovieInfo changes, @PathVariable String id) {
+        return moviesInfoService.patchMovieInfo(changes, id)
+                .map(ResponseEntity.ok()::body)
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
+                .transform(signalTracer.mono("patchMovieInfo"));
     }
 
     @DeleteMapping("/moviesInfo/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMovieInfoById(@PathVariable String id) {
-        return moviesInfoService.deleteMovieInfoById(id).log();
+        return moviesInfoService.deleteMovieInfoById(id)
+                .transform(signalTracer.mono("deleteMovieInfoById"));
+    }
+
+    private static MovieInfoSearchIndex.Field searchField(String field) {
+        if (field == null) {
+            return MovieInfoSearchIndex.Field.ALL;
+        }
+        try {
+            return MovieInfoSearchIndex.Field.valueOf(field.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ServerWebInputException("Invalid search field : " + field);
+        }
+    }
+
+    private static String encodeContinuation(String movieInfoId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(movieInfoId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeContinuation(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new ServerWebInputException("Invalid continuation token : " + token);
+        }
     }
 }
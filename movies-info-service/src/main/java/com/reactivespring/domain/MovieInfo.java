@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -27,4 +28,10 @@ public class MovieInfo {
     private Integer year;
     private List<@NotBlank(message = "cast must be present") String> cast;
     private LocalDate releaseDate;
+    @Version
+    private Long version;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate releaseDate) {
+        this(movieInfoId, name, year, cast, releaseDate, null);
+    }
 }
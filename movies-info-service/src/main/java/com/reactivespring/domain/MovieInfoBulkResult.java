@@ -0,0 +1,27 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoBulkResult {
+
+    /**
+     * Position of the MovieInfo in the uploaded body, starting at 0.
+     */
+    private long index;
+    private String movieInfoId;
+    private Status status;
+    private String error;
+
+    public enum Status {
+        CREATED, INVALID, FAILED,
+        /**
+         * The upload could not be decoded from this position on; always the last result.
+         */
+        MALFORMED
+    }
+}
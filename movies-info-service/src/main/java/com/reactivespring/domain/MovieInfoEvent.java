@@ -0,0 +1,29 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    /**
+     * Identifies the event log instance that numbered this event; sequences are only comparable within one epoch.
+     */
+    private String epoch;
+    private long sequence;
+    private Type type;
+    /**
+     * The changed MovieInfo; for a {@link Type#DELETE} only the movieInfoId is guaranteed to be set.
+     */
+    private MovieInfo movieInfo;
+    private Instant publishedAt;
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+}
@@ -0,0 +1,19 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoPage {
+
+    private List<MovieInfo> movieInfos;
+    /**
+     * Id of the last MovieInfo on this page when more follow, otherwise null.
+     */
+    private String lastMovieInfoId;
+}
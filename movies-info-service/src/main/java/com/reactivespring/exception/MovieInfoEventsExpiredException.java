@@ -0,0 +1,12 @@
+package com.reactivespring.exception;
+
+/**
+ * The requested position is older than the oldest event still retained, so the gap cannot be replayed and
+ * the consumer has to resync.
+ */
+public class MovieInfoEventsExpiredException extends RuntimeException {
+
+    public MovieInfoEventsExpiredException(String message) {
+        super(message);
+    }
+}
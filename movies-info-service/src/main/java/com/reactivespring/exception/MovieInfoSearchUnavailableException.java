@@ -0,0 +1,11 @@
+package com.reactivespring.exception;
+
+/**
+ * The search index has not finished loading, so it cannot answer searches completely yet.
+ */
+public class MovieInfoSearchUnavailableException extends RuntimeException {
+
+    public MovieInfoSearchUnavailableException(String message) {
+        super(message);
+    }
+}
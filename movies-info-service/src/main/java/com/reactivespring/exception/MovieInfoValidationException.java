@@ -0,0 +1,11 @@
+package com.reactivespring.exception;
+
+/**
+ * A MovieInfo change that violates the MovieInfo constraints; the message lists the violations.
+ */
+public class MovieInfoValidationException extends RuntimeException {
+
+    public MovieInfoValidationException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,12 @@
 package com.reactivespring.exceptionHandler;
 
+import com.reactivespring.exception.MovieInfoEventsExpiredException;
+import com.reactivespring.exception.MovieInfoSearchUnavailableException;
+import com.reactivespring.exception.MovieInfoValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -23,4 +28,36 @@ public class GlobalExceptionHandler {
         log.error("Message : {} ", error);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
+
+    @ExceptionHandler(MovieInfoEventsExpiredException.class)
+    public ResponseEntity<String> handleEventsExpired(MovieInfoEventsExpiredException ex) {
+        log.error("Exception : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(MovieInfoSearchUnavailableException.class)
+    public ResponseEntity<String> handleSearchUnavailable(MovieInfoSearchUnavailableException ex) {
+        log.error("Exception : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(MovieInfoValidationException.class)
+    public ResponseEntity<String> handleMovieInfoValidation(MovieInfoValidationException ex) {
+        log.error("Exception : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    // a MovieInfo posted with the id of an existing one has no version, so it is inserted as new and collides
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<String> handleDuplicateKey(DuplicateKeyException ex) {
+        log.error("Exception : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("MovieInfo already exists, update it with PUT or PATCH instead");
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleVersionConflict(OptimisticLockingFailureException ex) {
+        log.error("Exception : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
 }
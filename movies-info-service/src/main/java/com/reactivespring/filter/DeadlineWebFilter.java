@@ -0,0 +1,57 @@
+package com.reactivespring.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Enforces the remaining budget sent by the caller in {@link #TIMEOUT_HEADER}. When it runs out the
+ * exchange is cancelled, which also cancels the repository query still feeding the response.
+ */
+@Component
+@Slf4j
+public class DeadlineWebFilter implements WebFilter {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var timeoutHeader = exchange.getRequest().getHeaders().getFirst(TIMEOUT_HEADER);
+        if (timeoutHeader == null) {
+            return chain.filter(exchange);
+        }
+
+        long budgetMillis;
+        try {
+            budgetMillis = Long.parseLong(timeoutHeader);
+        } catch (NumberFormatException ex) {
+            return chain.filter(exchange);
+        }
+        if (budgetMillis <= 0) {
+            return gatewayTimeout(exchange);
+        }
+
+        return chain.filter(exchange)
+                .timeout(Duration.ofMillis(budgetMillis))
+                .onErrorResume(TimeoutException.class, ex -> {
+                    log.warn("Deadline of {}ms exceeded for {} {}", budgetMillis,
+                            exchange.getRequest().getMethod(), exchange.getRequest().getPath());
+                    if (exchange.getResponse().isCommitted()) {
+                        return Mono.error(ex);
+                    }
+                    return gatewayTimeout(exchange);
+                });
+    }
+
+    private Mono<Void> gatewayTimeout(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+        return exchange.getResponse().setComplete();
+    }
+}
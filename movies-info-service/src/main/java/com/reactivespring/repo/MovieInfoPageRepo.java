@@ -0,0 +1,13 @@
+package com.reactivespring.repo;
+
+import com.reactivespring.domain.MovieInfo;
+import reactor.core.publisher.Flux;
+
+public interface MovieInfoPageRepo {
+
+    /**
+     * Up to {@code limit} MovieInfos ordered by id, starting after {@code afterId} when given and
+     * restricted to {@code year} when given.
+     */
+    Flux<MovieInfo> findPage(Integer year, String afterId, int limit);
+}
@@ -0,0 +1,57 @@
+package com.reactivespring.repo;
+
+import com.reactivespring.domain.MovieInfo;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keyset pagination on the id, so a page costs an index seek no matter how deep into the collection it starts.
+ */
+public class MovieInfoPageRepoImpl implements MovieInfoPageRepo {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final int cursorBatchSize;
+
+    public MovieInfoPageRepoImpl(ReactiveMongoTemplate reactiveMongoTemplate,
+                                 @Value("${movieInfo.page.cursorBatchSize:100}") int cursorBatchSize) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.cursorBatchSize = cursorBatchSize;
+    }
+
+    @Override
+    public Flux<MovieInfo> findPage(Integer year, String afterId, int limit) {
+        var criteria = new ArrayList<Criteria>();
+        if (year != null) {
+            criteria.add(where("year").is(year));
+        }
+        if (afterId != null) {
+            criteria.add(after(afterId));
+        }
+        var query = criteria.isEmpty() ? new Query() : Query.query(new Criteria().andOperator(criteria));
+        query.with(Sort.by(Sort.Direction.ASC, "movieInfoId"))
+                .limit(limit)
+                .cursorBatchSize(cursorBatchSize);
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    // ids are either generated ObjectIds or client-chosen strings; all strings sort before all ObjectIds,
+    // and $gt only matches values of the same type, so a string position also has to admit every ObjectId
+    private Criteria after(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return where("movieInfoId").gt(new ObjectId(afterId));
+        }
+        return new Criteria().orOperator(
+                where("movieInfoId").gt(afterId),
+                where("movieInfoId").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+}
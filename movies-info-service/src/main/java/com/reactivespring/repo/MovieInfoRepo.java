@@ -3,8 +3,16 @@ package com.reactivespring.repo;
 import com.reactivespring.domain.MovieInfo;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface MovieInfoRepo extends ReactiveMongoRepository<MovieInfo, String> {
+public interface MovieInfoRepo extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoPageRepo,
+        MovieInfoUpdateRepo {
 
     Flux<MovieInfo> findByYear(Integer year);
+
+    /**
+     * Deletes the MovieInfo in one round trip and answers how many were deleted, unlike
+     * {@link #deleteById(Object)}, which does not tell whether anything was there.
+     */
+    Mono<Long> deleteByMovieInfoId(String movieInfoId);
 }
@@ -0,0 +1,21 @@
+package com.reactivespring.repo;
+
+import com.reactivespring.domain.MovieInfo;
+import reactor.core.publisher.Mono;
+
+public interface MovieInfoUpdateRepo {
+
+    /**
+     * Sets the non-null fields of {@code changes} on the MovieInfo with the given id and increments its version,
+     * in one atomic update, and returns the updated MovieInfo. When {@code changes} carries a version, the update
+     * only applies to that version and fails with an
+     * {@link org.springframework.dao.OptimisticLockingFailureException} otherwise. Empty when there is no
+     * MovieInfo with that id.
+     */
+    Mono<MovieInfo> patch(String id, MovieInfo changes);
+
+    /**
+     * Like {@link #patch(String, MovieInfo)}, but sets every field from {@code replacement}, null ones included.
+     */
+    Mono<MovieInfo> replace(String id, MovieInfo replacement);
+}
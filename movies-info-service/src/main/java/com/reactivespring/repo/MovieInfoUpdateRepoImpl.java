@@ -0,0 +1,68 @@
+package com.reactivespring.repo;
+
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Updates as a single findAndModify instead of a read followed by a full-document save: one round trip, only
+ * the changed fields are written, and concurrent writers cannot interleave between the read and the write.
+ */
+public class MovieInfoUpdateRepoImpl implements MovieInfoUpdateRepo {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoUpdateRepoImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<MovieInfo> patch(String id, MovieInfo changes) {
+        var update = new Update();
+        setIfPresent(update, "name", changes.getName());
+        setIfPresent(update, "year", changes.getYear());
+        setIfPresent(update, "cast", changes.getCast());
+        setIfPresent(update, "releaseDate", changes.getReleaseDate());
+        return modify(id, changes.getVersion(), update);
+    }
+
+    @Override
+    public Mono<MovieInfo> replace(String id, MovieInfo replacement) {
+        var update = new Update()
+                .set("name", replacement.getName())
+                .set("year", replacement.getYear())
+                .set("cast", replacement.getCast())
+                .set("releaseDate", replacement.getReleaseDate());
+        return modify(id, replacement.getVersion(), update);
+    }
+
+    private Mono<MovieInfo> modify(String id, Long version, Update update) {
+        var criteria = where("movieInfoId").is(id);
+        if (version != null) {
+            criteria.and("version").is(version);
+        }
+        return reactiveMongoTemplate.findAndModify(Query.query(criteria), update.inc("version", 1),
+                        FindAndModifyOptions.options().returnNew(true), MovieInfo.class)
+                .switchIfEmpty(Mono.defer(() -> version == null ? Mono.empty() : versionConflict(id, version)));
+    }
+
+    // only a failed versioned update pays for a second round trip, to tell a stale version from a missing id
+    private Mono<MovieInfo> versionConflict(String id, Long version) {
+        return reactiveMongoTemplate.exists(Query.query(where("movieInfoId").is(id)), MovieInfo.class)
+                .filter(Boolean::booleanValue)
+                .flatMap(exists -> Mono.error(new OptimisticLockingFailureException(
+                        "MovieInfo " + id + " is no longer at version " + version)));
+    }
+
+    private void setIfPresent(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Feeds the {@link MovieInfoEventLog} from a MongoDB change stream on the MovieInfo collection, so inserts,
+ * updates and deletes made through any instance reach the subscribers of every instance. Each instance keeps
+ * one change stream cursor, whatever the number of local subscribers, and resumes it from the last resume
+ * token after a failure. Requires MongoDB to run as a replica set.
+ */
+@Component
+@ConditionalOnProperty(name = "movieInfo.events.feed", havingValue = MovieInfoChangeStreamFeed.FEED)
+@Slf4j
+public class MovieInfoChangeStreamFeed {
+
+    public static final String FEED = "change-stream";
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MovieInfoEventLog movieInfoEventLog;
+    private final Duration reconnectMinBackoff;
+    private final Duration reconnectMaxBackoff;
+    private final AtomicReference<BsonValue> resumeToken = new AtomicReference<>();
+    private Disposable subscription;
+
+    public MovieInfoChangeStreamFeed(ReactiveMongoTemplate reactiveMongoTemplate, MovieInfoEventLog movieInfoEventLog,
+                                     @Value("${movieInfo.events.reconnectMinBackoff:1s}") Duration reconnectMinBackoff,
+                                     @Value("${movieInfo.events.reconnectMaxBackoff:30s}") Duration reconnectMaxBackoff) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.movieInfoEventLog = movieInfoEventLog;
+        this.reconnectMinBackoff = reconnectMinBackoff;
+        this.reconnectMaxBackoff = reconnectMaxBackoff;
+    }
+
+    @PostConstruct
+    public void start() {
+        subscription = Flux.defer(this::changes)
+                .doOnError(ex -> log.warn("MovieInfo change stream failed : {}", ex.toString()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, reconnectMinBackoff)
+                        .maxBackoff(reconnectMaxBackoff)
+                        .transientErrors(true))
+                // the cursor completes after an invalidate event, e.g. when the collection is dropped
+                .repeatWhen(completed -> completed.delayElements(reconnectMinBackoff))
+                .subscribe(this::publish);
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscription.dispose();
+    }
+
+    private Flux<ChangeStreamEvent<MovieInfo>> changes() {
+        var options = ChangeStreamOptions.builder()
+                .returnFullDocumentOnUpdate();
+        var token = resumeToken.get();
+        if (token != null) {
+            options.resumeAfter(token);
+        }
+        return reactiveMongoTemplate.changeStream(reactiveMongoTemplate.getCollectionName(MovieInfo.class),
+                options.build(), MovieInfo.class);
+    }
+
+    private void publish(ChangeStreamEvent<MovieInfo> event) {
+        var operationType = event.getOperationType();
+        if (operationType == null) {
+            return;
+        }
+        switch (operationType) {
+            case INSERT:
+                movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, event.getBody());
+                break;
+            case UPDATE:
+            case REPLACE:
+                // the looked-up document is missing when it was deleted before the lookup ran
+                if (event.getBody() != null) {
+                    movieInfoEventLog.publish(MovieInfoEvent.Type.UPDATE, event.getBody());
+                }
+                break;
+            case DELETE:
+                var deleted = new MovieInfo();
+                deleted.setMovieInfoId(documentId(event));
+                movieInfoEventLog.publish(MovieInfoEvent.Type.DELETE, deleted);
+                break;
+            case INVALIDATE:
+                // an invalidated stream cannot be resumed, the next cursor starts from the present
+                resumeToken.set(null);
+                return;
+            default:
+                break;
+        }
+        resumeToken.set(event.getResumeToken());
+    }
+
+    private String documentId(ChangeStreamEvent<MovieInfo> event) {
+        var id = event.getRaw().getDocumentKey().get("_id");
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+}
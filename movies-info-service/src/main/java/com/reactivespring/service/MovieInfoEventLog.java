@@ -0,0 +1,139 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MovieInfoEventsExpiredException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Numbers every published MovieInfo change with an increasing sequence, so a consumer that lost its
+ * connection can resume after the last sequence it saw instead of replaying the whole history. Only the
+ * latest events are retained, bounded by count and age; resuming from a position that has already been
+ * dropped fails with {@link MovieInfoEventsExpiredException}. Sequences restart with every instance, so each
+ * event also carries the epoch of the log that numbered it, and a position from another epoch is treated like
+ * an expired one.
+ */
+@Component
+public class MovieInfoEventLog {
+
+    private final ConcurrentNavigableMap<Long, MovieInfoEvent> events = new ConcurrentSkipListMap<>();
+    private final Sinks.Many<Long> published = Sinks.many().multicast().directBestEffort();
+    private final int maxSize;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final String epoch = UUID.randomUUID().toString();
+    private long lastSequence;
+
+    @Autowired
+    public MovieInfoEventLog(@Value("${movieInfo.events.maxSize:10000}") int maxSize,
+                             @Value("${movieInfo.events.maxAge:1h}") Duration maxAge) {
+        this(maxSize, maxAge, Clock.systemUTC());
+    }
+
+    MovieInfoEventLog(int maxSize, Duration maxAge, Clock clock) {
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public synchronized MovieInfoEvent publish(MovieInfoEvent.Type type, MovieInfo movieInfo) {
+        var event = new MovieInfoEvent(epoch, ++lastSequence, type, movieInfo, clock.instant());
+        events.put(event.getSequence(), event);
+        trim();
+        published.tryEmitNext(event.getSequence());
+        return event;
+    }
+
+    /**
+     * Events with a sequence greater than {@code after}, followed by live events as they are published.
+     * Fails once events after {@code after} are no longer retained, including when the subscriber falls
+     * that far behind while following.
+     */
+    public Flux<MovieInfoEvent> eventsAfter(long after) {
+        return eventsAfter(epoch, after);
+    }
+
+    /**
+     * Like {@link #eventsAfter(long)} for a position taken from another consumer's events. Fails when
+     * {@code epoch} is not this log's epoch, or when {@code after} was never published, since such a
+     * position belongs to an earlier instance whose events are gone. A null epoch is not checked.
+     */
+    public Flux<MovieInfoEvent> eventsAfter(String epoch, long after) {
+        return Flux.defer(() -> {
+            if ((epoch != null && !epoch.equals(this.epoch)) || after > latestSequence()) {
+                return Flux.error(new MovieInfoEventsExpiredException("Events after sequence " + after
+                        + " of epoch " + epoch + " are not known to epoch " + this.epoch
+                        + ", resync from the retained events"));
+            }
+            return follow(after, true);
+        });
+    }
+
+    /**
+     * All retained events, followed by live events as they are published.
+     */
+    public Flux<MovieInfoEvent> retainedEvents() {
+        return follow(0, false);
+    }
+
+    /**
+     * Only the events published from now on, still numbered, so a consumer can resume after the last one it saw.
+     */
+    public Flux<MovieInfoEvent> liveEvents() {
+        return Flux.defer(() -> follow(latestSequence(), true));
+    }
+
+    private Flux<MovieInfoEvent> follow(long after, boolean failOnGap) {
+        return Flux.defer(() -> {
+            var cursor = new AtomicLong(after);
+            // listen for new events before reading the log, so nothing published in between is missed;
+            // every signal re-reads the log from the cursor, so only the latest one needs to be kept
+            return Flux.merge(published.asFlux().onBackpressureLatest(), Mono.just(after))
+                    .concatMap(signal -> {
+                        trim();
+                        if (failOnGap && cursor.get() < oldestRetainedSequence() - 1) {
+                            return Flux.error(new MovieInfoEventsExpiredException("Events after sequence "
+                                    + cursor.get() + " are no longer retained, resync from the retained events"));
+                        }
+                        return Flux.fromIterable(events.tailMap(cursor.get(), false).values())
+                                .doOnNext(event -> cursor.set(event.getSequence()));
+                    }, 1);
+        });
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    private synchronized long latestSequence() {
+        return lastSequence;
+    }
+
+    private synchronized long oldestRetainedSequence() {
+        var oldest = events.firstEntry();
+        return oldest == null ? lastSequence + 1 : oldest.getKey();
+    }
+
+    // events are only ever dropped from the head, so the retained sequences stay contiguous
+    private synchronized void trim() {
+        var expiredBefore = clock.instant().minus(maxAge);
+        var oldest = events.firstEntry();
+        while (oldest != null && (lastSequence - oldest.getKey() + 1 > maxSize
+                || oldest.getValue().getPublishedAt().isBefore(expiredBefore))) {
+            events.pollFirstEntry();
+            oldest = events.firstEntry();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.repo.MovieInfoRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps an in-memory inverted index from the tokens of {@link MovieInfo#getName()} and of every cast entry to
+ * the MovieInfos containing them, so searches and prefix completions are answered without querying MongoDB.
+ * The index is loaded from the repository at startup and then follows the {@link MovieInfoEventLog}; at most
+ * {@code movieInfo.search.maxDocuments} MovieInfos are indexed. If it falls so far behind that the events it
+ * has not applied yet are no longer retained, it is rebuilt from the repository.
+ */
+@Component
+@Slf4j
+public class MovieInfoSearchIndex {
+
+    public enum Field {
+        NAME, CAST, ALL
+    }
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final MovieInfoRepo movieInfoRepo;
+    private final MovieInfoEventLog movieInfoEventLog;
+    private final int maxDocuments;
+    private final Map<String, MovieInfo> documents = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, Set<String>> nameTerms = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, Set<String>> castTerms = new ConcurrentSkipListMap<>();
+    private final AtomicLong postings = new AtomicLong();
+    private final Counter rejected;
+    // ids changed by an event while the initial load runs; the load must not overwrite them
+    private Set<String> changedWhileLoading = new HashSet<>();
+    private volatile boolean ready;
+    private boolean budgetExceeded;
+    private volatile Disposable events;
+    private volatile Disposable load;
+    private volatile boolean stopped;
+
+    public MovieInfoSearchIndex(MovieInfoRepo movieInfoRepo, MovieInfoEventLog movieInfoEventLog,
+                                @Value("${movieInfo.search.maxDocuments:100000}") int maxDocuments,
+                                MeterRegistry meterRegistry) {
+        this.movieInfoRepo = movieInfoRepo;
+        this.movieInfoEventLog = movieInfoEventLog;
+        this.maxDocuments = maxDocuments;
+        Gauge.builder("movies.info.search.documents", documents, Map::size).register(meterRegistry);
+        Gauge.builder("movies.info.search.terms", this, index -> index.nameTerms.size() + index.castTerms.size())
+                .register(meterRegistry);
+        Gauge.builder("movies.info.search.postings", postings, AtomicLong::get).register(meterRegistry);
+        this.rejected = Counter.builder("movies.info.search.rejected")
+                .description("MovieInfos left out of the search index because it was full")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // follow the events before loading, so nothing written during the load is missed; the load covers
+        // everything published before, so only the events after the latest sequence are needed
+        events = movieInfoEventLog.liveEvents()
+                .subscribe(this::apply, this::eventsLost);
+        load = movieInfoRepo.findAll()
+                .doOnNext(this::load)
+                .doOnError(ex -> log.warn("Loading the MovieInfo search index failed : {}", ex.toString()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .doOnComplete(this::loaded)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        load.dispose();
+        events.dispose();
+    }
+
+    // rebuilt off the publishing thread, which may hold the event log's lock
+    private void eventsLost(Throwable ex) {
+        log.warn("MovieInfo search index missed events, rebuilding it : {}", ex.toString());
+        Schedulers.boundedElastic().schedule(() -> {
+            if (stopped) {
+                return;
+            }
+            load.dispose();
+            clear();
+            start();
+        });
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * MovieInfos matching every token of {@code query}, each token being matched as a prefix, ordered by
+     * name and id.
+     */
+    public List<MovieInfo> search(String query, Field field, int limit) {
+        Set<String> ids = null;
+        for (var token : tokenize(query)) {
+            var matches = new HashSet<String>();
+            if (field != Field.CAST) {
+                collectPrefix(nameTerms, token, matches);
+            }
+            if (field != Field.NAME) {
+                collectPrefix(castTerms, token, matches);
+            }
+            if (ids == null) {
+                ids = matches;
+            } else {
+                ids.retainAll(matches);
+            }
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+        }
+        if (ids == null) {
+            return List.of();
+        }
+        return ids.stream()
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(MovieInfo::getName, Comparator.nullsLast(String::compareToIgnoreCase))
+                        .thenComparing(MovieInfo::getMovieInfoId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private void collectPrefix(ConcurrentNavigableMap<String, Set<String>> terms, String prefix, Set<String> into) {
+        terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false)
+                .values()
+                .forEach(into::addAll);
+    }
+
+    synchronized void apply(MovieInfoEvent event) {
+        var movieInfo = event.getMovieInfo();
+        if (changedWhileLoading != null) {
+            changedWhileLoading.add(movieInfo.getMovieInfoId());
+        }
+        if (event.getType() == MovieInfoEvent.Type.DELETE) {
+            remove(movieInfo.getMovieInfoId());
+        } else {
+            index(movieInfo);
+        }
+    }
+
+    synchronized void load(MovieInfo movieInfo) {
+        if (changedWhileLoading == null || !changedWhileLoading.contains(movieInfo.getMovieInfoId())) {
+            index(movieInfo);
+        }
+    }
+
+    synchronized void clear() {
+        ready = false;
+        changedWhileLoading = new HashSet<>();
+        budgetExceeded = false;
+        documents.clear();
+        nameTerms.clear();
+        castTerms.clear();
+        postings.set(0);
+    }
+
+    synchronized void loaded() {
+        changedWhileLoading = null;
+        ready = true;
+        log.info("MovieInfo search index loaded : {} MovieInfos, {} postings", documents.size(), postings.get());
+    }
+
+    private void index(MovieInfo movieInfo) {
+        var id = movieInfo.getMovieInfoId();
+        if (!documents.containsKey(id) && documents.size() >= maxDocuments) {
+            rejected.increment();
+            if (!budgetExceeded) {
+                budgetExceeded = true;
+                log.warn("MovieInfo search index is full at {} MovieInfos, further MovieInfos are not searchable",
+                        maxDocuments);
+            }
+            return;
+        }
+        remove(id);
+        documents.put(id, movieInfo);
+        addPostings(nameTerms, tokenize(movieInfo.getName()), id);
+        addPostings(castTerms, castTokens(movieInfo), id);
+    }
+
+    private void remove(String id) {
+        var previous = documents.remove(id);
+        if (previous != null) {
+            removePostings(nameTerms, tokenize(previous.getName()), id);
+            removePostings(castTerms, castTokens(previous), id);
+        }
+    }
+
+    private void addPostings(Map<String, Set<String>> terms, Collection<String> tokens, String id) {
+        for (var token : tokens) {
+            if (terms.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet()).add(id)) {
+                postings.incrementAndGet();
+            }
+        }
+    }
+
+    private void removePostings(Map<String, Set<String>> terms, Collection<String> tokens, String id) {
+        for (var token : tokens) {
+            var ids = terms.get(token);
+            if (ids != null && ids.remove(id)) {
+                postings.decrementAndGet();
+                if (ids.isEmpty()) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    private Set<String> castTokens(MovieInfo movieInfo) {
+        var tokens = new HashSet<String>();
+        if (movieInfo.getCast() != null) {
+            movieInfo.getCast().forEach(member -> tokens.addAll(tokenize(member)));
+        }
+        return tokens;
+    }
+
+    static Set<String> tokenize(String text) {
+        var tokens = new HashSet<String>();
+        if (text != null) {
+            for (var token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+}
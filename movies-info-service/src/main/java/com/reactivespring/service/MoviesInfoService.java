@@ -1,48 +1,307 @@
 package com.reactivespring.service;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.reactivespring.cache.MovieInfoCache;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBulkResult;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.MovieInfoPage;
+import com.reactivespring.exception.MovieInfoSearchUnavailableException;
+import com.reactivespring.exception.MovieInfoValidationException;
 import com.reactivespring.repo.MovieInfoRepo;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class MoviesInfoService {
 
     private MovieInfoRepo movieInfoRepo;
 
-    public MoviesInfoService(MovieInfoRepo movieInfoRepo) {
+    private MovieInfoEventLog movieInfoEventLog;
+
+    private MovieInfoSearchIndex movieInfoSearchIndex;
+
+    private MovieInfoCache movieInfoCache;
+
+    // with the change-stream feed every write reaches the event log through MongoDB instead
+    private boolean publishLocally;
+
+    @Value("${movieInfo.page.defaultSize:50}")
+    private int defaultPageSize;
+
+    @Value("${movieInfo.page.maxSize:500}")
+    private int maxPageSize;
+
+    private Validator validator;
+
+    @Value("${movieInfo.bulk.batchSize:500}")
+    private int bulkBatchSize;
+
+    @Value("${movieInfo.bulk.concurrency:4}")
+    private int bulkConcurrency;
+
+    @Value("${movieInfo.search.defaultLimit:20}")
+    private int defaultSearchLimit;
+
+    @Value("${movieInfo.search.maxLimit:100}")
+    private int maxSearchLimit;
+
+    public MoviesInfoService(MovieInfoRepo movieInfoRepo, MovieInfoEventLog movieInfoEventLog,
+                             MovieInfoSearchIndex movieInfoSearchIndex, MovieInfoCache movieInfoCache,
+                             Validator validator,
+                             @Value("${movieInfo.events.feed:local}") String eventFeed) {
         this.movieInfoRepo = movieInfoRepo;
+        this.movieInfoEventLog = movieInfoEventLog;
+        this.movieInfoSearchIndex = movieInfoSearchIndex;
+        this.movieInfoCache = movieInfoCache;
+        this.validator = validator;
+        this.publishLocally = !MovieInfoChangeStreamFeed.FEED.equals(eventFeed);
     }
 
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return movieInfoRepo.save(movieInfo);
+        return movieInfoRepo.save(movieInfo)
+                .doOnNext(saved -> {
+                    movieInfoCache.put(saved);
+                    publish(MovieInfoEvent.Type.INSERT, saved);
+                });
+    }
+
+    /**
+     * Validates each MovieInfo as it is decoded and inserts the valid ones in batches of
+     * {@code movieInfo.bulk.batchSize}, with at most {@code movieInfo.bulk.concurrency} batches in flight;
+     * the upload is only read as fast as batches complete. Emits one result per MovieInfo, in upload order.
+     * A body that cannot be decoded any further ends the upload with a final {@code MALFORMED} result, since the
+     * response has already been committed by then.
+     */
+    public Flux<MovieInfoBulkResult> addMovieInfos(Flux<MovieInfo> movieInfos) {
+        return Flux.defer(() -> {
+            var decoded = new AtomicLong();
+            return movieInfos.index()
+                    .doOnNext(item -> decoded.incrementAndGet())
+                    .map(this::checked)
+                    .onErrorResume(ex -> {
+                        log.info("Bulk upload stopped decoding after {} MovieInfos : {}", decoded.get(), ex.toString());
+                        return Mono.just(new BulkItem(null, new MovieInfoBulkResult(decoded.get(), null,
+                                MovieInfoBulkResult.Status.MALFORMED, ex.getMessage())));
+                    })
+                    .buffer(bulkBatchSize)
+                    .flatMapSequential(this::insertBatch, bulkConcurrency);
+        });
+    }
+
+    private BulkItem checked(Tuple2<Long, MovieInfo> item) {
+        var error = validate(item.getT2(), false);
+        if (error != null) {
+            return new BulkItem(item, result(item, MovieInfoBulkResult.Status.INVALID, error));
+        }
+        // ids are assigned up front, so the documents written before a failure are known
+        if (item.getT2().getMovieInfoId() == null) {
+            item.getT2().setMovieInfoId(new ObjectId().toHexString());
+        }
+        return new BulkItem(item, null);
+    }
+
+    private Flux<MovieInfoBulkResult> insertBatch(List<BulkItem> batch) {
+        var rejected = new ArrayList<MovieInfoBulkResult>();
+        var valid = new ArrayList<Tuple2<Long, MovieInfo>>();
+        for (var bulkItem : batch) {
+            if (bulkItem.getRejected() != null) {
+                rejected.add(bulkItem.getRejected());
+            } else {
+                valid.add(bulkItem.getItem());
+            }
+        }
+        return Flux.concat(Flux.fromIterable(rejected), insert(valid))
+                .sort(Comparator.comparingLong(MovieInfoBulkResult::getIndex));
+    }
+
+    // an ordered insertAll stops at the first failing document: everything before it was written,
+    // and everything after it is retried
+    private Flux<MovieInfoBulkResult> insert(List<Tuple2<Long, MovieInfo>> items) {
+        if (items.isEmpty()) {
+            return Flux.empty();
+        }
+        var movieInfos = items.stream().map(Tuple2::getT2).collect(Collectors.toList());
+        return movieInfoRepo.insert(movieInfos)
+                .thenMany(Flux.fromIterable(items).map(this::created))
+                .onErrorResume(ex -> {
+                    var writeError = firstWriteError(ex);
+                    if (writeError == null) {
+                        log.warn("Bulk insert of {} MovieInfos failed : {}", items.size(), ex.toString());
+                        return Flux.fromIterable(items)
+                                .map(item -> result(item, MovieInfoBulkResult.Status.FAILED, ex.getMessage()));
+                    }
+                    var failedIndex = writeError.getIndex();
+                    return Flux.concat(
+                            Flux.fromIterable(items.subList(0, failedIndex)).map(this::created),
+                            Mono.just(result(items.get(failedIndex), MovieInfoBulkResult.Status.FAILED,
+                                    writeError.getMessage())),
+                            insert(items.subList(failedIndex + 1, items.size())));
+                });
+    }
+
+    // an uploaded MovieInfo, checked as it was decoded; a rejected one already has its result and is not inserted
+    @Getter
+    @AllArgsConstructor
+    private static class BulkItem {
+        private final Tuple2<Long, MovieInfo> item;
+        private final MovieInfoBulkResult rejected;
     }
 
-    public Flux<MovieInfo> getAllMoviesInfo() {
-        return movieInfoRepo.findAll();
+    private BulkWriteError firstWriteError(Throwable ex) {
+        for (var cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException) {
+                var writeErrors = ((MongoBulkWriteException) cause).getWriteErrors();
+                return writeErrors.isEmpty() ? null : writeErrors.get(0);
+            }
+        }
+        return null;
+    }
+
+    private MovieInfoBulkResult created(Tuple2<Long, MovieInfo> item) {
+        // only drops a cached "not found", bulk loads should not flood the cache
+        movieInfoCache.evict(item.getT2().getMovieInfoId());
+        publish(MovieInfoEvent.Type.INSERT, item.getT2());
+        return result(item, MovieInfoBulkResult.Status.CREATED, null);
+    }
+
+    private MovieInfoBulkResult result(Tuple2<Long, MovieInfo> item, MovieInfoBulkResult.Status status, String error) {
+        return new MovieInfoBulkResult(item.getT1(), item.getT2().getMovieInfoId(), status, error);
+    }
+
+    // a partial MovieInfo only has its supplied, non-null values checked
+    private String validate(MovieInfo movieInfo, boolean partial) {
+        var constraintViolations = validator.validate(movieInfo).stream()
+                .filter(violation -> !partial || violation.getInvalidValue() != null)
+                .collect(Collectors.toList());
+        if (constraintViolations.isEmpty()) {
+            return null;
+        }
+        return constraintViolations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    public Flux<MovieInfoEvent> getMovieInfoEvents(String epoch, long after) {
+        return movieInfoEventLog.eventsAfter(epoch, after);
+    }
+
+    public Flux<MovieInfoEvent> getRetainedMovieInfoEvents() {
+        return movieInfoEventLog.retainedEvents();
+    }
+
+    public Flux<MovieInfoEvent> getLiveMovieInfoEvents() {
+        return movieInfoEventLog.liveEvents();
+    }
+
+    /**
+     * One page of MovieInfos ordered by id, optionally restricted to a year. The page size defaults to
+     * {@code movieInfo.page.defaultSize} and never exceeds {@code movieInfo.page.maxSize}.
+     */
+    public Mono<MovieInfoPage> getMovieInfoPage(Integer year, String afterId, Integer limit) {
+        var pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        // one more than the page size tells whether another page follows
+        return movieInfoRepo.findPage(year, afterId, pageSize + 1)
+                .collectList()
+                .map(movieInfos -> {
+                    if (movieInfos.size() <= pageSize) {
+                        return new MovieInfoPage(movieInfos, null);
+                    }
+                    var page = movieInfos.subList(0, pageSize);
+                    return new MovieInfoPage(page, page.get(pageSize - 1).getMovieInfoId());
+                });
+    }
+
+    /**
+     * MovieInfos whose name or cast contain every token of {@code query}, the tokens matching as prefixes.
+     * Answered from the in-memory {@link MovieInfoSearchIndex}; the result size defaults to
+     * {@code movieInfo.search.defaultLimit} and never exceeds {@code movieInfo.search.maxLimit}.
+     */
+    public Flux<MovieInfo> searchMovieInfos(String query, MovieInfoSearchIndex.Field field, Integer limit) {
+        return Flux.defer(() -> {
+            if (!movieInfoSearchIndex.isReady()) {
+                return Flux.error(new MovieInfoSearchUnavailableException("MovieInfo search index is still loading"));
+            }
+            var size = limit == null ? defaultSearchLimit : Math.max(1, Math.min(limit, maxSearchLimit));
+            return Flux.fromIterable(movieInfoSearchIndex.search(query, field, size));
+        });
     }
 
     public Mono<MovieInfo> getMovieInfoById(String id) {
-        return movieInfoRepo.findById(id);
+        return movieInfoCache.get(id, movieInfoRepo::findById);
     }
 
-    public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
-        return movieInfoRepo.findByYear(year);
+    public Flux<MovieInfo> getMovieInfoByIds(List<String> ids) {
+        return movieInfoRepo.findAllById(ids);
     }
 
+    /**
+     * Replaces the fields of the MovieInfo in one atomic findAndModify, conditional on the {@code version} in
+     * {@code movieInfo} when it has one.
+     */
     public Mono<MovieInfo> updateMovieInfo(MovieInfo movieInfo, String id) {
-        return movieInfoRepo.findById(id)
-                .flatMap(movieInfoNew -> {
-                    movieInfoNew.setCast(movieInfo.getCast());
-                    movieInfoNew.setMovieInfoId(movieInfo.getMovieInfoId());
-                    movieInfoNew.setYear(movieInfo.getYear());
-                    movieInfoNew.setReleaseDate(movieInfo.getReleaseDate());
-                    return movieInfoRepo.save(movieInfoNew);
-                });
+        return movieInfoRepo.replace(id, movieInfo)
+                .doOnNext(this::updated);
     }
 
+    /**
+     * Applies the non-null fields of {@code changes} in one atomic findAndModify. A {@code version} in
+     * {@code changes} makes the update conditional on it; a stale version fails with an
+     * {@link org.springframework.dao.OptimisticLockingFailureException}.
+     */
+    public Mono<MovieInfo> patchMovieInfo(MovieInfo changes, String id) {
+        return Mono.defer(() -> {
+            var error = validate(changes, true);
+            if (error != null) {
+                return Mono.error(new MovieInfoValidationException(error));
+            }
+            return movieInfoRepo.patch(id, changes)
+                    .doOnNext(this::updated);
+        });
+    }
+
+    private void updated(MovieInfo movieInfo) {
+        movieInfoCache.put(movieInfo);
+        publish(MovieInfoEvent.Type.UPDATE, movieInfo);
+    }
+
+    /**
+     * Deletes the MovieInfo and, when there was one, publishes a DELETE event that carries only its id, like the
+     * events from {@link MovieInfoChangeStreamFeed}.
+     */
     public Mono<Void> deleteMovieInfoById(String id) {
-        return movieInfoRepo.deleteById(id);
+        return movieInfoRepo.deleteByMovieInfoId(id)
+                .filter(deletedCount -> deletedCount > 0)
+                .doOnNext(deletedCount -> {
+                    movieInfoCache.evict(id);
+                    var deleted = new MovieInfo();
+                    deleted.setMovieInfoId(id);
+                    publish(MovieInfoEvent.Type.DELETE, deleted);
+                })
+                .then();
+    }
+
+    private void publish(MovieInfoEvent.Type type, MovieInfo movieInfo) {
+        if (publishLocally) {
+            movieInfoEventLog.publish(type, movieInfo);
+        }
     }
 }
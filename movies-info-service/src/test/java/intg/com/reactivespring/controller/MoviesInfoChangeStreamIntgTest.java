@@ -0,0 +1,81 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.repo.MovieInfoRepo;
+import com.reactivespring.service.MovieInfoEventLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@TestPropertySource(
+        properties = {
+                "spring.mongodb.embedded.version=4.0.12",
+                "spring.mongodb.embedded.storage.repl-set-name=rs0",
+                "movieInfo.events.feed=change-stream"
+        }
+)
+class MoviesInfoChangeStreamIntgTest {
+
+    @Autowired
+    MovieInfoRepo movieInfoRepo;
+
+    @Autowired
+    MovieInfoEventLog movieInfoEventLog;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        // the change stream cursor opens asynchronously, so write until the first change comes through
+        Flux.interval(Duration.ZERO, Duration.ofMillis(200))
+                .concatMap(tick -> movieInfoRepo.save(new MovieInfo(null, "probe", 2000, List.of(), null)))
+                .takeUntilOther(movieInfoEventLog.retainedEvents().next())
+                .blockLast(Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepo.deleteAll().block();
+    }
+
+    @Test
+    void getMovieInfoEvents_publishesWritesThatBypassTheController() {
+        var movieInfo = new MovieInfo("def", "Inception",
+                2010, List.of("Leonardo DiCaprio"), LocalDate.parse("2010-07-16"));
+        movieInfoRepo.save(movieInfo).block();
+        movieInfo.setYear(2011);
+        movieInfoRepo.save(movieInfo).block();
+        movieInfoRepo.deleteById("def").block();
+
+        var eventTypes = webTestClient
+                .get()
+                .uri("/v1/moviesInfo/events")
+                .exchange()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody()
+                .filter(event -> "def".equals(event.getMovieInfo().getMovieInfoId()))
+                .map(MovieInfoEvent::getType);
+
+        StepVerifier.create(eventTypes.take(3))
+                .expectNext(MovieInfoEvent.Type.INSERT, MovieInfoEvent.Type.UPDATE, MovieInfoEvent.Type.DELETE)
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+    }
+}
@@ -1,6 +1,7 @@
 package com.reactivespring.controller;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
 import com.reactivespring.repo.MovieInfoRepo;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,13 +9,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -80,6 +85,32 @@ class MoviesInfoControllerIntgTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMoviesInfoPaginated() {
+        // the seeded ids mix a generated ObjectId pair with the string id "abc"
+        var names = new ArrayList<String>();
+        String after = null;
+        do {
+            var uri = UriComponentsBuilder.fromUriString(movieInfoURL)
+                    .queryParam("limit", 2)
+                    .queryParamIfPresent("after", Optional.ofNullable(after))
+                    .buildAndExpand().toUri();
+            var result = webTestClient
+                    .get()
+                    .uri(uri)
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(MovieInfo.class)
+                    .returnResult();
+            result.getResponseBody().forEach(movieInfo -> names.add(movieInfo.getName()));
+            after = result.getResponseHeaders().getFirst(MoviesInfoController.CONTINUATION_HEADER);
+        } while (after != null);
+
+        assertEquals(3, names.size());
+        assertEquals(3, new HashSet<>(names).size());
+    }
+
     @Test
     void getAllMoviesInfoWithYear() {
         var uri = UriComponentsBuilder.fromUriString("/v1/moviesInfo")
@@ -96,6 +127,22 @@ class MoviesInfoControllerIntgTest {
                 .hasSize(1);
     }
 
+    @Test
+    void getAllMoviesInfoWithIds() {
+        var uri = UriComponentsBuilder.fromUriString("/v1/moviesInfo")
+                .queryParam("ids", "abc,def")
+                .buildAndExpand().toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void getMovieInfoById() {
         var movieInfoId = "def";
@@ -137,6 +184,65 @@ class MoviesInfoControllerIntgTest {
                 });
     }
 
+    @Test
+    void addMovieInfo_existingIdConflicts() {
+        var movieInfo = new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+        webTestClient
+                .post()
+                .uri(movieInfoURL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        var unchanged = movieInfoRepo.findById("abc").block();
+        assert unchanged != null;
+        assertEquals("Dark Knight Rises", unchanged.getName());
+    }
+
+    @Test
+    void patchMovieInfo() {
+        var changes = new MovieInfo();
+        changes.setName("The Dark Knight Rises");
+        changes.setVersion(0L);
+
+        webTestClient
+                .patch()
+                .uri("/v1/moviesInfo/{id}", "abc")
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult -> {
+                    var patchedMovieInfo = movieInfoEntityExchangeResult.getResponseBody();
+                    assert patchedMovieInfo != null;
+                    assertEquals("abc", patchedMovieInfo.getMovieInfoId());
+                    assertEquals("The Dark Knight Rises", patchedMovieInfo.getName());
+                    assertEquals(2012, patchedMovieInfo.getYear());
+                    assertEquals(1L, patchedMovieInfo.getVersion());
+                });
+
+        // the same version again lost the race
+        webTestClient
+                .patch()
+                .uri("/v1/moviesInfo/{id}", "abc")
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        webTestClient
+                .patch()
+                .uri("/v1/moviesInfo/{id}", "def")
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
     @Test
     void deleteMovieInfoById() {
         var movieInfoId = "abc";
@@ -194,4 +300,44 @@ class MoviesInfoControllerIntgTest {
                 .thenCancel()
                 .verify();
     }
-}
\ No newline at end of file
+
+    @Test
+    void getMovieInfoEvents() {
+        var movieInfo = new MovieInfo(null, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var sequences = new ArrayList<Long>();
+        for (int i = 0; i < 2; i++) {
+            webTestClient
+                    .post()
+                    .uri(movieInfoURL)
+                    .bodyValue(movieInfo)
+                    .exchange()
+                    .expectStatus()
+                    .isCreated();
+        }
+
+        webTestClient
+                .get()
+                .uri(movieInfoURL + "/events")
+                .exchange()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody()
+                .take(2)
+                .map(MovieInfoEvent::getSequence)
+                .doOnNext(sequences::add)
+                .blockLast();
+
+        var eventsAfterFirst = webTestClient
+                .get()
+                .uri(movieInfoURL + "/events?after={after}", sequences.get(0))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody();
+        StepVerifier.create(eventsAfterFirst)
+                .assertNext(event -> assertEquals(sequences.get(1), event.getSequence()))
+                .thenCancel()
+                .verify();
+    }
+}
@@ -0,0 +1,127 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MovieInfoEventsExpiredException;
+import com.reactivespring.service.MovieInfoEventLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoCacheTest {
+
+    private final MovieInfoEventLog movieInfoEventLog = new MovieInfoEventLog(100, Duration.ofHours(1));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    private MovieInfoCache movieInfoCache;
+
+    @BeforeEach
+    void setUp() {
+        movieInfoCache = new MovieInfoCache(true, 100, Duration.ofMinutes(10), Duration.ofMinutes(1),
+                movieInfoEventLog, meterRegistry);
+        movieInfoCache.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoCache.stop();
+    }
+
+    @Test
+    void get_coalescesConcurrentMisses() {
+        var lookup = Sinks.<MovieInfo>one();
+        var first = movieInfoCache.get("abc", id -> load(lookup.asMono()));
+        var second = movieInfoCache.get("abc", id -> load(lookup.asMono()));
+
+        lookup.tryEmitValue(movieInfo("abc", "Batman Begins"));
+
+        StepVerifier.create(first.map(MovieInfo::getName)).expectNext("Batman Begins").verifyComplete();
+        StepVerifier.create(second.map(MovieInfo::getName)).expectNext("Batman Begins").verifyComplete();
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void get_cachesMissesUntilWritten() {
+        StepVerifier.create(movieInfoCache.get("abc", id -> load(Mono.empty()))).verifyComplete();
+        StepVerifier.create(movieInfoCache.get("abc", id -> load(Mono.empty()))).verifyComplete();
+        assertEquals(1, loads.get());
+
+        movieInfoCache.put(movieInfo("abc", "Batman Begins"));
+
+        StepVerifier.create(movieInfoCache.get("abc", id -> load(Mono.empty())).map(MovieInfo::getName))
+                .expectNext("Batman Begins")
+                .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_followsEventsForCachedMovieInfos() {
+        movieInfoCache.put(movieInfo("abc", "Batman Begins"));
+
+        movieInfoEventLog.publish(MovieInfoEvent.Type.UPDATE, movieInfo("abc", "Batman Returns"));
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("def", "The Dark Knight"));
+
+        StepVerifier.create(movieInfoCache.get("abc", id -> load(Mono.empty())).map(MovieInfo::getName))
+                .expectNext("Batman Returns")
+                .verifyComplete();
+        // events for MovieInfos nobody read are not cached
+        StepVerifier.create(movieInfoCache.get("def", id -> load(Mono.just(movieInfo(id, "The Dark Knight")))))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(1, loads.get());
+
+        movieInfoEventLog.publish(MovieInfoEvent.Type.DELETE, movieInfo("abc", null));
+
+        StepVerifier.create(movieInfoCache.get("abc", id -> load(Mono.empty()))).verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void start_clearsWhenEventsAreNoLongerRetained() {
+        var expiringEvents = Sinks.many().multicast().<MovieInfoEvent>directBestEffort();
+        var expiringEventLog = mock(MovieInfoEventLog.class);
+        when(expiringEventLog.liveEvents())
+                .thenReturn(expiringEvents.asFlux())
+                .thenReturn(Flux.never());
+        var expiringCache = new MovieInfoCache(true, 100, Duration.ofMinutes(10), Duration.ofMinutes(1),
+                expiringEventLog, new SimpleMeterRegistry());
+        expiringCache.start();
+        expiringCache.put(movieInfo("abc", "Batman Begins"));
+
+        expiringEvents.tryEmitError(new MovieInfoEventsExpiredException("Events after sequence 1 are no longer retained"));
+
+        StepVerifier.create(expiringCache.get("abc", id -> load(Mono.just(movieInfo(id, "Batman Returns"))))
+                        .map(MovieInfo::getName))
+                .expectNext("Batman Returns")
+                .verifyComplete();
+        assertEquals(1, loads.get());
+        verify(expiringEventLog, times(2)).liveEvents();
+        expiringCache.stop();
+    }
+
+    private Mono<MovieInfo> load(Mono<MovieInfo> result) {
+        loads.incrementAndGet();
+        return result;
+    }
+
+    private MovieInfo movieInfo(String id, String name) {
+        return new MovieInfo(id, name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+    }
+}
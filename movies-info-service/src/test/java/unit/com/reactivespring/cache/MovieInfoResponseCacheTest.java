@@ -0,0 +1,56 @@
+package com.reactivespring.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reactivespring.domain.MovieInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoResponseCacheTest {
+
+    private final MovieInfoResponseCache movieInfoResponseCache =
+            new MovieInfoResponseCache(true, 100, ServerCodecConfigurer.create());
+
+    @Test
+    void encode_reusesBodyOfSameMovieInfo() throws Exception {
+        var movieInfo = movieInfo("Dark Knight Rises");
+
+        var encoded = movieInfoResponseCache.encode(movieInfo, List.of(MediaType.ALL)).orElseThrow();
+
+        assertEquals(MediaType.APPLICATION_JSON, encoded.getContentType());
+        assertSame(encoded, movieInfoResponseCache.encode(movieInfo, List.of(MediaType.APPLICATION_JSON)).orElseThrow());
+        assertArrayEquals(new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsBytes(movieInfo),
+                encoded.getBody());
+        // an updated MovieInfo is a new instance, with its own body and ETag
+        var updated = movieInfoResponseCache.encode(movieInfo("The Dark Knight Rises"), List.of(MediaType.ALL))
+                .orElseThrow();
+        assertNotEquals(encoded.getETag(), updated.getETag());
+    }
+
+    @Test
+    void encode_negotiatesContentType() {
+        var movieInfo = movieInfo("Dark Knight Rises");
+
+        var smile = movieInfoResponseCache.encode(movieInfo,
+                List.of(new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_JSON)).orElseThrow();
+
+        assertEquals(new MediaType("application", "x-jackson-smile"), smile.getContentType());
+        assertNotEquals(movieInfoResponseCache.encode(movieInfo, List.of(MediaType.APPLICATION_JSON))
+                .orElseThrow().getETag(), smile.getETag());
+        assertTrue(movieInfoResponseCache.encode(movieInfo, List.of(MediaType.TEXT_HTML)).isEmpty());
+    }
+
+    private MovieInfo movieInfo(String name) {
+        return new MovieInfo("abc", name, 2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+    }
+}
@@ -1,15 +1,18 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.trace.SignalTracer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.test.StepVerifier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @WebFluxTest(controllers = FluxAndMonoController.class)
+@Import(SignalTracer.class)
 @AutoConfigureWebTestClient
 class FluxAndMonoControllerTest {
 
@@ -1,17 +1,33 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.cache.MovieInfoResponseCache;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBulkResult;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.MovieInfoPage;
+import com.reactivespring.exception.MovieInfoEventsExpiredException;
+import com.reactivespring.service.MovieInfoSearchIndex;
 import com.reactivespring.service.MoviesInfoService;
+import com.reactivespring.trace.SignalTracer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Base64;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -19,6 +35,7 @@ import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
+@Import({SignalTracer.class, MovieInfoResponseCache.class})
 @AutoConfigureWebTestClient
 class MoviesInfoControllerUnitTest {
 
@@ -58,6 +75,53 @@ class MoviesInfoControllerUnitTest {
 //                });
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void addMovieInfos() {
+        when(moviesInfoServiceMock.addMovieInfos(isA(Flux.class))).thenAnswer(invocation ->
+                ((Flux<MovieInfo>) invocation.getArgument(0)).index()
+                        .map(item -> new MovieInfoBulkResult(item.getT1(), item.getT2().getName(),
+                                MovieInfoBulkResult.Status.CREATED, null)));
+
+        webTestClient
+                .post()
+                .uri("/v1/moviesInfo/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"name\":\"Batman Begins\",\"year\":2005}\n{\"name\":\"The Dark Knight\",\"year\":2008}\n")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfoBulkResult.class)
+                .value(results -> {
+                    assertEquals(2, results.size());
+                    assertEquals("The Dark Knight", results.get(1).getMovieInfoId());
+                    assertEquals(1, results.get(1).getIndex());
+                });
+    }
+
+    @Test
+    void searchMovieInfos() {
+        when(moviesInfoServiceMock.searchMovieInfos("dark kni", MovieInfoSearchIndex.Field.NAME, 5)).thenReturn(
+                Flux.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))));
+
+        webTestClient
+                .get()
+                .uri("/v1/moviesInfo/search?q={q}&field=name&limit=5", "dark kni")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+
+        webTestClient
+                .get()
+                .uri("/v1/moviesInfo/search?q=dark&field=year")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getAllMoviesInfo() {
         var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
@@ -67,7 +131,8 @@ class MoviesInfoControllerUnitTest {
                 new MovieInfo("abc", "Dark Knight Rises",
                         2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
 
-        when(moviesInfoServiceMock.getAllMoviesInfo()).thenReturn(Flux.fromIterable(movieinfos));
+        when(moviesInfoServiceMock.getMovieInfoPage(null, null, null))
+                .thenReturn(Mono.just(new MovieInfoPage(movieinfos, null)));
 
         webTestClient
                 .get()
@@ -75,10 +140,34 @@ class MoviesInfoControllerUnitTest {
                 .exchange()
                 .expectStatus()
                 .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(MoviesInfoController.CONTINUATION_HEADER)
                 .expectBodyList(MovieInfo.class)
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMoviesInfo_paginated() {
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        var token = Base64.getUrlEncoder().withoutPadding().encodeToString("abc".getBytes(StandardCharsets.UTF_8));
+
+        when(moviesInfoServiceMock.getMovieInfoPage(2012, "abb", 1))
+                .thenReturn(Mono.just(new MovieInfoPage(movieinfos, "abc")));
+
+        webTestClient
+                .get()
+                .uri("/v1/moviesInfo?year=2012&limit=1&after={after}",
+                        Base64.getUrlEncoder().withoutPadding().encodeToString("abb".getBytes(StandardCharsets.UTF_8)))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(MoviesInfoController.CONTINUATION_HEADER, token)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void getMovieInfoById() {
         var movieInfoId = "abc";
@@ -97,6 +186,101 @@ class MoviesInfoControllerUnitTest {
                 .jsonPath("$.name").isEqualTo("Dark Knight Rises");
     }
 
+    @Test
+    void getMovieInfoById_notModified() {
+        var movieInfoId = "abc";
+
+        when(moviesInfoServiceMock.getMovieInfoById(movieInfoId)).thenReturn(
+                Mono.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))));
+
+        var eTag = webTestClient
+                .get()
+                .uri("/v1/moviesInfo/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON)
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient
+                .get()
+                .uri("/v1/moviesInfo/{id}", movieInfoId)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void getMovieInfoEvents_expiredPosition() {
+        when(moviesInfoServiceMock.getMovieInfoEvents("e1", 1L)).thenReturn(
+                Flux.error(new MovieInfoEventsExpiredException("Events after sequence 1 are no longer retained")));
+
+        webTestClient
+                .get()
+                .uri("/v1/moviesInfo/events?after=1&epoch=e1")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    void getMovieInfoEvents_live() {
+        when(moviesInfoServiceMock.getLiveMovieInfoEvents()).thenReturn(Flux.just(new MovieInfoEvent("e1", 7L,
+                MovieInfoEvent.Type.UPDATE, new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale"),
+                LocalDate.parse("2005-06-15")), Instant.now())));
+
+        webTestClient
+                .get()
+                .uri("/v1/moviesInfo/events?live=true")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextMatches(event -> event.getSequence() == 7L)
+                .verifyComplete();
+    }
+
+    @Test
+    void addMovieInfo_existingIdConflicts() {
+        when(moviesInfoServiceMock.addMovieInfo(isA(MovieInfo.class))).thenReturn(
+                Mono.error(new DuplicateKeyException("E11000 duplicate key error collection: movieInfo")));
+
+        webTestClient
+                .post()
+                .uri("/v1/moviesInfo")
+                .bodyValue(new MovieInfo("abc", "Batman Begins",
+                        2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(String.class)
+                .isEqualTo("MovieInfo already exists, update it with PUT or PATCH instead");
+    }
+
+    @Test
+    void patchMovieInfo_versionConflict() {
+        when(moviesInfoServiceMock.patchMovieInfo(isA(MovieInfo.class), isA(String.class))).thenReturn(
+                Mono.error(new OptimisticLockingFailureException("MovieInfo abc is no longer at version 3")));
+
+        webTestClient
+                .patch()
+                .uri("/v1/moviesInfo/{id}", "abc")
+                .bodyValue("{\"name\":\"Batman Begins\",\"version\":3}")
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void updateMovieInfo() {
         var movieInfo = new MovieInfo(null, "Batman Begins",
@@ -0,0 +1,151 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MovieInfoEventsExpiredException;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MovieInfoEventLogTest {
+
+    private final MovieInfoEventLog movieInfoEventLog = new MovieInfoEventLog(2, Duration.ofHours(1));
+
+    @Test
+    void eventsAfter_resumesAfterSequence() {
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("3"));
+
+        StepVerifier.create(movieInfoEventLog.eventsAfter(1).map(MovieInfoEvent::getSequence))
+                .expectNext(2L, 3L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void eventsAfter_expiredPositionFails() {
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("3"));
+
+        StepVerifier.create(movieInfoEventLog.eventsAfter(0))
+                .expectError(MovieInfoEventsExpiredException.class)
+                .verify();
+        StepVerifier.create(movieInfoEventLog.retainedEvents().map(MovieInfoEvent::getSequence))
+                .expectNext(2L, 3L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void eventsAfter_positionFromAnotherEpochFails() {
+        var event = movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        var restartedEventLog = new MovieInfoEventLog(2, Duration.ofHours(1));
+        restartedEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+
+        StepVerifier.create(restartedEventLog.eventsAfter(event.getEpoch(), event.getSequence()))
+                .expectError(MovieInfoEventsExpiredException.class)
+                .verify();
+        StepVerifier.create(restartedEventLog.eventsAfter(null, 5))
+                .expectError(MovieInfoEventsExpiredException.class)
+                .verify();
+    }
+
+    @Test
+    void eventsAfter_positionFromSameEpochResumes() {
+        var event = movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+
+        StepVerifier.create(movieInfoEventLog.eventsAfter(event.getEpoch(), event.getSequence())
+                        .map(MovieInfoEvent::getSequence))
+                .expectNext(2L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void publish_dropsEventsOlderThanMaxAge() {
+        var clock = new MutableClock();
+        var agedEventLog = new MovieInfoEventLog(100, Duration.ofMinutes(1), clock);
+        agedEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+        clock.advance(Duration.ofMinutes(2));
+        agedEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("2"));
+
+        StepVerifier.create(agedEventLog.retainedEvents().map(MovieInfoEvent::getSequence))
+                .expectNext(2L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void eventsAfter_followsLiveEvents() {
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+
+        StepVerifier.create(movieInfoEventLog.eventsAfter(0).map(event -> event.getMovieInfo().getMovieInfoId()))
+                .expectNext("1")
+                .then(() -> movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("2")))
+                .expectNext("2")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void liveEvents_skipsRetainedEvents() {
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("1"));
+
+        StepVerifier.create(movieInfoEventLog.liveEvents().map(MovieInfoEvent::getSequence))
+                .then(() -> movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("2")))
+                .expectNext(2L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void isCreatedAsBean() {
+        new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory()
+                        .setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withUserConfiguration(MovieInfoEventLog.class)
+                .withPropertyValues("movieInfo.events.maxSize=5")
+                .run(context -> assertThat(context).hasNotFailed().hasSingleBean(MovieInfoEventLog.class));
+    }
+
+    private MovieInfo movieInfo(String id) {
+        return new MovieInfo(id, "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2021-08-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
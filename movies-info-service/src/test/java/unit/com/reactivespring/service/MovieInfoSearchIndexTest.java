@@ -0,0 +1,134 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MovieInfoEventsExpiredException;
+import com.reactivespring.repo.MovieInfoRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MovieInfoSearchIndexTest {
+
+    private final MovieInfoRepo movieInfoRepo = mock(MovieInfoRepo.class);
+    private final MovieInfoEventLog movieInfoEventLog = new MovieInfoEventLog(100, Duration.ofHours(1));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MovieInfoSearchIndex movieInfoSearchIndex;
+
+    @AfterEach
+    void tearDown() {
+        if (movieInfoSearchIndex != null) {
+            movieInfoSearchIndex.stop();
+        }
+    }
+
+    @Test
+    void search_matchesNameAndCastPrefixes() {
+        start(100, movieInfo("abc", "Batman Begins", "Christian Bale", "Michael Cane"),
+                movieInfo("def", "The Dark Knight", "Christian Bale", "HeathLedger"),
+                movieInfo("ghi", "Dark Knight Rises", "Christian Bale", "Tom Hardy"));
+
+        assertTrue(movieInfoSearchIndex.isReady());
+        assertEquals(List.of("ghi", "def"), ids(movieInfoSearchIndex.search("dark kni", MovieInfoSearchIndex.Field.ALL, 10)));
+        assertEquals(List.of("abc", "ghi", "def"), ids(movieInfoSearchIndex.search("Bale", MovieInfoSearchIndex.Field.CAST, 10)));
+        assertEquals(List.of("abc"), ids(movieInfoSearchIndex.search("bale", MovieInfoSearchIndex.Field.ALL, 1)));
+        assertEquals(List.of(), movieInfoSearchIndex.search("bale", MovieInfoSearchIndex.Field.NAME, 10));
+        assertEquals(List.of(), movieInfoSearchIndex.search("batman hardy", MovieInfoSearchIndex.Field.ALL, 10));
+    }
+
+    @Test
+    void search_followsUpdatesAndDeletes() {
+        start(100, movieInfo("abc", "Batman Begins", "Christian Bale"));
+
+        movieInfoEventLog.publish(MovieInfoEvent.Type.INSERT, movieInfo("def", "The Dark Knight", "Heath Ledger"));
+        movieInfoEventLog.publish(MovieInfoEvent.Type.UPDATE, movieInfo("abc", "Batman Returns", "Michael Keaton"));
+
+        assertEquals(List.of("abc"), ids(movieInfoSearchIndex.search("returns", MovieInfoSearchIndex.Field.ALL, 10)));
+        assertEquals(List.of(), movieInfoSearchIndex.search("begins", MovieInfoSearchIndex.Field.ALL, 10));
+        assertEquals(List.of("def"), ids(movieInfoSearchIndex.search("ledger", MovieInfoSearchIndex.Field.ALL, 10)));
+
+        var deleted = new MovieInfo();
+        deleted.setMovieInfoId("def");
+        movieInfoEventLog.publish(MovieInfoEvent.Type.DELETE, deleted);
+
+        assertEquals(List.of(), movieInfoSearchIndex.search("ledger", MovieInfoSearchIndex.Field.ALL, 10));
+        assertEquals(1.0, meterRegistry.get("movies.info.search.documents").gauge().value());
+        // batman, returns, michael, keaton
+        assertEquals(4.0, meterRegistry.get("movies.info.search.postings").gauge().value());
+    }
+
+    @Test
+    void load_keepsChangesMadeWhileLoading() {
+        movieInfoSearchIndex = new MovieInfoSearchIndex(movieInfoRepo, movieInfoEventLog, 100, meterRegistry);
+
+        movieInfoSearchIndex.apply(new MovieInfoEvent("e1", 1, MovieInfoEvent.Type.UPDATE,
+                movieInfo("abc", "Batman Returns", "Michael Keaton"), Instant.now()));
+        movieInfoSearchIndex.load(movieInfo("abc", "Batman Begins", "Christian Bale"));
+        movieInfoSearchIndex.loaded();
+
+        assertEquals(List.of(), movieInfoSearchIndex.search("begins", MovieInfoSearchIndex.Field.ALL, 10));
+        assertEquals(List.of("abc"), ids(movieInfoSearchIndex.search("keaton", MovieInfoSearchIndex.Field.ALL, 10)));
+        movieInfoSearchIndex = null;
+    }
+
+    @Test
+    void index_rejectsMovieInfosBeyondBudget() {
+        start(1, movieInfo("abc", "Batman Begins", "Christian Bale"),
+                movieInfo("def", "The Dark Knight", "Heath Ledger"));
+
+        assertFalse(movieInfoSearchIndex.search("batman", MovieInfoSearchIndex.Field.ALL, 10).isEmpty());
+        assertEquals(List.of(), movieInfoSearchIndex.search("dark", MovieInfoSearchIndex.Field.ALL, 10));
+        assertEquals(1.0, meterRegistry.get("movies.info.search.rejected").counter().count());
+    }
+
+    @Test
+    void start_rebuildsWhenEventsAreNoLongerRetained() throws InterruptedException {
+        var expiringEventLog = mock(MovieInfoEventLog.class);
+        var expired = new MovieInfoEventsExpiredException("Events after sequence 1 are no longer retained");
+        when(expiringEventLog.liveEvents())
+                .thenReturn(Flux.<MovieInfoEvent>error(expired).delaySubscription(Duration.ofMillis(100)))
+                .thenReturn(Flux.never());
+        when(movieInfoRepo.findAll())
+                .thenReturn(Flux.just(movieInfo("abc", "Batman Begins", "Christian Bale")))
+                .thenReturn(Flux.just(movieInfo("def", "The Dark Knight", "Heath Ledger")));
+        movieInfoSearchIndex = new MovieInfoSearchIndex(movieInfoRepo, expiringEventLog, 100, meterRegistry);
+        movieInfoSearchIndex.start();
+        assertEquals(List.of("abc"), ids(movieInfoSearchIndex.search("batman", MovieInfoSearchIndex.Field.ALL, 10)));
+
+        for (int i = 0; i < 100 && movieInfoSearchIndex.search("dark", MovieInfoSearchIndex.Field.ALL, 10).isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        assertTrue(movieInfoSearchIndex.isReady());
+        assertEquals(List.of("def"), ids(movieInfoSearchIndex.search("dark", MovieInfoSearchIndex.Field.ALL, 10)));
+        assertEquals(List.of(), movieInfoSearchIndex.search("batman", MovieInfoSearchIndex.Field.ALL, 10));
+        assertEquals(1.0, meterRegistry.get("movies.info.search.documents").gauge().value());
+    }
+
+    private void start(int maxDocuments, MovieInfo... movieInfos) {
+        when(movieInfoRepo.findAll()).thenReturn(Flux.just(movieInfos));
+        movieInfoSearchIndex = new MovieInfoSearchIndex(movieInfoRepo, movieInfoEventLog, maxDocuments, meterRegistry);
+        movieInfoSearchIndex.start();
+    }
+
+    private List<String> ids(List<MovieInfo> movieInfos) {
+        return movieInfos.stream().map(MovieInfo::getMovieInfoId).collect(Collectors.toList());
+    }
+
+    private MovieInfo movieInfo(String id, String name, String... cast) {
+        return new MovieInfo(id, name, 2005, List.of(cast), LocalDate.parse("2005-06-15"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.reactivespring.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoBulkResult;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.repo.MovieInfoRepo;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import javax.validation.Validation;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MoviesInfoServiceTest {
+
+    private final MovieInfoRepo movieInfoRepo = mock(MovieInfoRepo.class);
+    private final MovieInfoEventLog movieInfoEventLog = new MovieInfoEventLog(100, Duration.ofHours(1));
+    private MoviesInfoService moviesInfoService;
+
+    @BeforeEach
+    void setUp() {
+        moviesInfoService = new MoviesInfoService(movieInfoRepo, movieInfoEventLog, mock(MovieInfoSearchIndex.class),
+                mock(MovieInfoCache.class), Validation.buildDefaultValidatorFactory().getValidator(), "local");
+        ReflectionTestUtils.setField(moviesInfoService, "bulkBatchSize", 10);
+        ReflectionTestUtils.setField(moviesInfoService, "bulkConcurrency", 2);
+    }
+
+    @Test
+    void addMovieInfos_reportsEachItemInUploadOrder() {
+        // the second document is invalid, the fourth fails the insert after the third was written
+        var movieInfos = List.of(movieInfo("a", "Batman Begins"), movieInfo("b", ""),
+                movieInfo("c", "The Dark Knight"), movieInfo("d", "Dark Knight Rises"), movieInfo(null, "Inception"));
+        var duplicateKey = new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 2)),
+                null, new ServerAddress(), Set.of());
+        when(movieInfoRepo.insert(anyList()))
+                .thenReturn(Flux.error(duplicateKey))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(moviesInfoService.addMovieInfos(Flux.fromIterable(movieInfos)).collectList())
+                .assertNext(results -> {
+                    assertEquals(5, results.size());
+                    assertEquals(List.of(MovieInfoBulkResult.Status.CREATED, MovieInfoBulkResult.Status.INVALID,
+                                    MovieInfoBulkResult.Status.CREATED, MovieInfoBulkResult.Status.FAILED,
+                                    MovieInfoBulkResult.Status.CREATED),
+                            List.of(results.get(0).getStatus(), results.get(1).getStatus(), results.get(2).getStatus(),
+                                    results.get(3).getStatus(), results.get(4).getStatus()));
+                    assertEquals("MovieName must be present", results.get(1).getError());
+                    assertEquals(4, results.get(4).getIndex());
+                    assertNotNull(results.get(4).getMovieInfoId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void addMovieInfos_decodeErrorEndsWithMalformedResult() {
+        when(movieInfoRepo.insert(anyList())).thenReturn(Flux.empty());
+        var upload = Flux.concat(Flux.just(movieInfo("a", "Batman Begins"), movieInfo("b", "")),
+                Flux.error(new DecodingException("JSON decoding error: Unexpected character")));
+
+        StepVerifier.create(moviesInfoService.addMovieInfos(upload).map(MovieInfoBulkResult::getStatus))
+                .expectNext(MovieInfoBulkResult.Status.CREATED, MovieInfoBulkResult.Status.INVALID,
+                        MovieInfoBulkResult.Status.MALFORMED)
+                .verifyComplete();
+        StepVerifier.create(moviesInfoService.addMovieInfos(Flux.error(new DecodingException("empty"))))
+                .assertNext(result -> {
+                    assertEquals(0, result.getIndex());
+                    assertEquals("empty", result.getError());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void patchMovieInfo_checksOnlySuppliedFields() {
+        var changes = new MovieInfo();
+        changes.setYear(2006);
+        var patched = movieInfo("abc", "Batman Begins");
+        when(movieInfoRepo.patch("abc", changes)).thenReturn(Mono.just(patched));
+
+        StepVerifier.create(moviesInfoService.patchMovieInfo(changes, "abc"))
+                .expectNext(patched)
+                .verifyComplete();
+
+        changes.setName("");
+        StepVerifier.create(moviesInfoService.patchMovieInfo(changes, "abc"))
+                .expectErrorMessage("MovieName must be present")
+                .verify();
+        verify(movieInfoRepo, times(1)).patch(anyString(), any());
+    }
+
+    @Test
+    void deleteMovieInfoById_publishesIdOnlyEventWhenDeleted() {
+        when(movieInfoRepo.deleteByMovieInfoId("abc")).thenReturn(Mono.just(1L));
+        when(movieInfoRepo.deleteByMovieInfoId("def")).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(moviesInfoService.deleteMovieInfoById("def")).verifyComplete();
+        StepVerifier.create(moviesInfoService.deleteMovieInfoById("abc")).verifyComplete();
+
+        // the missing "def" published nothing, so the first retained event is the one for "abc"
+        StepVerifier.create(movieInfoEventLog.retainedEvents())
+                .assertNext(event -> {
+                    assertEquals(MovieInfoEvent.Type.DELETE, event.getType());
+                    assertEquals("abc", event.getMovieInfo().getMovieInfoId());
+                    assertNull(event.getMovieInfo().getName());
+                })
+                .thenCancel()
+                .verify();
+        verify(movieInfoRepo, never()).findById(anyString());
+    }
+
+    private MovieInfo movieInfo(String id, String name) {
+        return new MovieInfo(id, name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+    }
+}
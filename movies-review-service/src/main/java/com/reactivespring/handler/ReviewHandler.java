@@ -4,18 +4,25 @@ import com.reactivespring.domain.Review;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
 import com.reactivespring.repo.ReviewReactiveRepo;
+import com.reactivespring.trace.SignalTracer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Component
@@ -28,14 +35,28 @@ public class ReviewHandler {
     @Autowired
     private Validator validator;
 
+    @Autowired
+    private SignalTracer signalTracer;
+
+    @Value("${reviews.summary.maxTop:50}")
+    private int maxSummaryTop;
+
+    @Value("${reviews.page.maxLimit:5000}")
+    private int maxPageLimit;
+
     Sinks.Many<Review> reviewSinks = Sinks.many().replay().all();
 
+    // for subscribers that only want reviews added after they subscribed, without the replayed history
+    private final Sinks.Many<Review> liveReviewSinks = Sinks.many().multicast().directBestEffort();
+
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
                 .flatMap(reviewReactiveRepo::save)
-                .doOnNext(review
-                        -> reviewSinks.tryEmitNext(review))
+                .doOnNext(review -> {
+                    reviewSinks.tryEmitNext(review);
+                    liveReviewSinks.tryEmitNext(review);
+                })
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
@@ -53,6 +74,20 @@ public class ReviewHandler {
 
     public Mono<ServerResponse> getReviews(ServerRequest request) {
         var movieInfoId = request.queryParam("movieInfoId");
+        var movieInfoIds = request.queryParam("movieInfoIds");
+        if (movieInfoIds.isPresent()) {
+            var reviews = reviewReactiveRepo.findReviewsByMovieInfoIdIn(parseMovieInfoIds(movieInfoIds.get()));
+            return ServerResponse.status(HttpStatus.OK).body(reviews, Review.class);
+        }
+        if (movieInfoId.isPresent() && request.queryParam("limit").isPresent()) {
+            var limit = intQueryParam(request, "limit").orElseThrow();
+            if (limit <= 0) {
+                return Mono.error(new ReviewDataException("limit must be positive"));
+            }
+            var reviews = getReviewsPage(Long.valueOf(movieInfoId.get()), request.queryParam("afterReviewId"),
+                    Math.min(limit, maxPageLimit));
+            return ServerResponse.status(HttpStatus.OK).body(reviews, Review.class);
+        }
         if (movieInfoId.isPresent()) {
             var reviews = reviewReactiveRepo.findReviewsByMovieInfoId(Long.valueOf(movieInfoId.get()));
             return ServerResponse.status(HttpStatus.OK).body(reviews, Review.class);
@@ -62,6 +97,43 @@ public class ReviewHandler {
         }
     }
 
+    // ordered by reviewId so a caller can continue after the last review it received
+    private Flux<Review> getReviewsPage(Long movieInfoId, Optional<String> afterReviewId, int limit) {
+        var page = PageRequest.of(0, limit);
+        return afterReviewId
+                .map(reviewId -> reviewReactiveRepo
+                        .findReviewsByMovieInfoIdAndReviewIdGreaterThanOrderByReviewIdAsc(movieInfoId, reviewId, page))
+                .orElseGet(() -> reviewReactiveRepo.findReviewsByMovieInfoIdOrderByReviewIdAsc(movieInfoId, page));
+    }
+
+    private Optional<Integer> intQueryParam(ServerRequest request, String name) {
+        try {
+            return request.queryParam(name).map(Integer::valueOf);
+        } catch (NumberFormatException ex) {
+            throw new ReviewDataException(name + " must be an integer");
+        }
+    }
+
+    // ids that are not numeric can never match a review, so they are dropped instead of failing the whole lookup
+    private List<Long> parseMovieInfoIds(String movieInfoIds) {
+        return Arrays.stream(movieInfoIds.split(","))
+                .map(String::trim)
+                .filter(id -> id.matches("-?\\d+"))
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
+    }
+
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        var movieInfoId = request.queryParam("movieInfoId");
+        if (movieInfoId.isEmpty()) {
+            return Mono.error(new ReviewDataException("movieInfoId must be present"));
+        }
+        var top = Math.max(1, Math.min(intQueryParam(request, "top").orElse(3), maxSummaryTop));
+
+        return reviewReactiveRepo.summarizeReviews(Long.valueOf(movieInfoId.get()), top)
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
         var existingReview = reviewReactiveRepo.findById(reviewId)
@@ -95,9 +167,10 @@ public class ReviewHandler {
     }
 
     public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
+        var live = request.queryParam("live").map(Boolean::parseBoolean).orElse(false);
+        var reviews = live ? liveReviewSinks.asFlux() : reviewSinks.asFlux();
         return ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewSinks.asFlux(),Review.class)
-                .log();
+                .body(reviews.transform(signalTracer.flux("getReviewsStream")), Review.class);
     }
 }
@@ -1,9 +1,19 @@
 package com.reactivespring.repo;
 
 import com.reactivespring.domain.Review;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface ReviewReactiveRepo extends ReactiveMongoRepository<Review, String> {
+import java.util.Collection;
+
+public interface ReviewReactiveRepo extends ReactiveMongoRepository<Review, String>, ReviewSummaryRepo {
     Flux<Review> findReviewsByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findReviewsByMovieInfoIdOrderByReviewIdAsc(Long movieInfoId, Pageable pageable);
+
+    Flux<Review> findReviewsByMovieInfoIdAndReviewIdGreaterThanOrderByReviewIdAsc(Long movieInfoId, String reviewId,
+                                                                                  Pageable pageable);
+
+    Flux<Review> findReviewsByMovieInfoIdIn(Collection<Long> movieInfoIds);
 }
@@ -0,0 +1,9 @@
+package com.reactivespring.repo;
+
+import com.reactivespring.domain.ReviewSummary;
+import reactor.core.publisher.Mono;
+
+public interface ReviewSummaryRepo {
+
+    Mono<ReviewSummary> summarizeReviews(Long movieInfoId, int top);
+}
@@ -0,0 +1,46 @@
+package com.reactivespring.repo;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Count and average are aggregated inside Mongo, so only the top reviews are ever read into the service.
+ */
+public class ReviewSummaryRepoImpl implements ReviewSummaryRepo {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewSummaryRepoImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<ReviewSummary> summarizeReviews(Long movieInfoId, int top) {
+        var aggregation = Aggregation.newAggregation(
+                Aggregation.match(where("movieInfoId").is(movieInfoId)),
+                Aggregation.group().count().as("count").avg("rating").as("averageRating"));
+        var stats = reactiveMongoTemplate.aggregate(aggregation, Review.class, Document.class)
+                .next()
+                .defaultIfEmpty(new Document("count", 0));
+
+        var topReviewsQuery = Query.query(where("movieInfoId").is(movieInfoId))
+                .with(Sort.by(Sort.Direction.DESC, "rating"))
+                .limit(top);
+        var topReviews = reactiveMongoTemplate.find(topReviewsQuery, Review.class)
+                .collectList();
+
+        return Mono.zip(stats, topReviews)
+                .map(tuple -> new ReviewSummary(movieInfoId,
+                        ((Number) tuple.getT1().get("count")).longValue(),
+                        tuple.getT1().getDouble("averageRating"),
+                        tuple.getT2()));
+    }
+}
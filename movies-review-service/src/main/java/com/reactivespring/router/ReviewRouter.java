@@ -19,9 +19,10 @@ public class ReviewRouter {
                     builder.POST("", request -> reviewHandler.addReview(request))
                             .DELETE("/{id}", request -> reviewHandler.deleteReview(request))
                             .PUT("/{id}", request -> reviewHandler.updateReview(request))
+                            .GET("/stream", request -> reviewHandler.getReviewsStream(request))
+                            .GET("/summary", request -> reviewHandler.getReviewSummary(request))
                             .GET("/{id}", request -> reviewHandler.getReview(request))
-                            .GET("", request -> reviewHandler.getReviews(request))
-                            .GET("/stream", request -> reviewHandler.getReviewsStream(request));
+                            .GET("", request -> reviewHandler.getReviews(request));
                 })
                 .GET("/v1/helloworld", (request -> ServerResponse.ok().bodyValue("hello world")))
                 .build();
@@ -1,6 +1,7 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.repo.ReviewReactiveRepo;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -76,6 +77,22 @@ public class ReviewsIntgTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviewsForMovieInfoIds() {
+        var uri = UriComponentsBuilder.fromUriString("/v1/review")
+                .queryParam("movieInfoIds", "1,2,abc")
+                .buildAndExpand().toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
     @Test
     void updateReview() {
         var review = new Review(null, 1L, "Awesome Movie", 8.0);
@@ -122,4 +139,51 @@ public class ReviewsIntgTest {
                 .expectStatus()
                 .isNoContent();
     }
+
+    @Test
+    void getReviewsPage() {
+        reviewReactiveRepo.saveAll(List.of(
+                        new Review(null, 3L, "Good Movie", 7.0),
+                        new Review(null, 3L, "Good Movie1", 7.5)))
+                .blockLast();
+
+        var firstPage = webTestClient
+                .get()
+                .uri("/v1/review?movieInfoId={id}&limit={limit}", 3, 1)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(1)
+                .returnResult()
+                .getResponseBody();
+
+        webTestClient
+                .get()
+                .uri("/v1/review?movieInfoId={id}&afterReviewId={after}&limit={limit}",
+                        3, firstPage.get(0).getReviewId(), 10)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviewSummary() {
+        webTestClient
+                .get()
+                .uri("/v1/review/summary?movieInfoId={id}&top={top}", 1, 1)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .consumeWith(reviewSummaryEntityExchangeResult -> {
+                    var reviewSummary = reviewSummaryEntityExchangeResult.getResponseBody();
+                    assert reviewSummary != null;
+                    assertEquals(2, reviewSummary.getCount());
+                    assertEquals(9.0, reviewSummary.getAverageRating());
+                    assertEquals(1, reviewSummary.getTopReviews().size());
+                });
+    }
 }
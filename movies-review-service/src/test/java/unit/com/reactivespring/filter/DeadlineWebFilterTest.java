@@ -0,0 +1,77 @@
+package com.reactivespring.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DeadlineWebFilterTest {
+
+    @Test
+    void filter_spentBudgetIsRejectedUpfront() {
+        var handled = new AtomicBoolean();
+        var webTestClient = webTestClient(Duration.ZERO, handled);
+
+        for (var budget : new String[]{"0", "-5"}) {
+            webTestClient
+                    .get()
+                    .uri("/v1/test")
+                    .header(DeadlineWebFilter.TIMEOUT_HEADER, budget)
+                    .exchange()
+                    .expectStatus()
+                    .isEqualTo(504);
+        }
+        assertFalse(handled.get());
+    }
+
+    @Test
+    void filter_expiredBudgetReturnsGatewayTimeout() {
+        webTestClient(Duration.ofSeconds(5), new AtomicBoolean())
+                .get()
+                .uri("/v1/test")
+                .header(DeadlineWebFilter.TIMEOUT_HEADER, "100")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(504);
+    }
+
+    @Test
+    void filter_responseWithinBudget() {
+        webTestClient(Duration.ZERO, new AtomicBoolean())
+                .get()
+                .uri("/v1/test")
+                .header(DeadlineWebFilter.TIMEOUT_HEADER, "1000")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .isEqualTo("ok");
+    }
+
+    @Test
+    void filter_malformedHeaderIsIgnored() {
+        webTestClient(Duration.ZERO, new AtomicBoolean())
+                .get()
+                .uri("/v1/test")
+                .header(DeadlineWebFilter.TIMEOUT_HEADER, "soon")
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    private WebTestClient webTestClient(Duration handlerDelay, AtomicBoolean handled) {
+        return WebTestClient
+                .bindToWebHandler(exchange -> Mono.delay(handlerDelay)
+                        .doOnNext(tick -> handled.set(true))
+                        .then(exchange.getResponse().writeWith(Mono.fromSupplier(() ->
+                                DefaultDataBufferFactory.sharedInstance.wrap("ok".getBytes(StandardCharsets.UTF_8))))))
+                .webFilter(new DeadlineWebFilter())
+                .build();
+    }
+}
@@ -1,24 +1,33 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repo.ReviewReactiveRepo;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.trace.SignalTracer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class, SignalTracer.class})
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
 
@@ -42,4 +51,89 @@ public class ReviewsUnitTest {
                 .expectStatus()
                 .isBadRequest();
     }
+
+    @Test
+    void getReviewSummary() {
+        when(reviewReactiveRepo.summarizeReviews(1L, 2)).thenReturn(Mono.just(new ReviewSummary(1L, 3, 8.5,
+                List.of(new Review("abc", 1L, "Awesome Movie", 9.0), new Review("def", 1L, "Nice Movie", 8.5)))));
+
+        webTestClient
+                .get()
+                .uri("/v1/review/summary?movieInfoId=1&top=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(ReviewSummary.class)
+                .consumeWith(reviewSummaryEntityExchangeResult -> {
+                    var reviewSummary = reviewSummaryEntityExchangeResult.getResponseBody();
+                    assert reviewSummary != null;
+                    assertEquals(3, reviewSummary.getCount());
+                    assertEquals(2, reviewSummary.getTopReviews().size());
+                });
+    }
+
+    @Test
+    void getReviewsPage_rejectsInvalidLimit() {
+        for (var limit : List.of("abc", "0", "-1")) {
+            webTestClient
+                    .get()
+                    .uri("/v1/review?movieInfoId=1&limit={limit}", limit)
+                    .exchange()
+                    .expectStatus()
+                    .isBadRequest();
+        }
+    }
+
+    @Test
+    void getReviewsPage_clampsLimitToMaxPageSize() {
+        when(reviewReactiveRepo.findReviewsByMovieInfoIdOrderByReviewIdAsc(1L, PageRequest.of(0, 5000)))
+                .thenReturn(Flux.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+
+        webTestClient
+                .get()
+                .uri("/v1/review?movieInfoId=1&limit=100000")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviewSummary_rejectsNonNumericTop() {
+        webTestClient
+                .get()
+                .uri("/v1/review/summary?movieInfoId=1&top=many")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewSummary_clampsTop() {
+        when(reviewReactiveRepo.summarizeReviews(1L, 1)).thenReturn(Mono.just(new ReviewSummary(1L, 3, 8.5,
+                List.of(new Review("abc", 1L, "Awesome Movie", 9.0)))));
+        when(reviewReactiveRepo.summarizeReviews(1L, 50)).thenReturn(Mono.just(new ReviewSummary(1L, 3, 8.5,
+                List.of())));
+
+        for (var top : List.of("0", "-3")) {
+            webTestClient
+                    .get()
+                    .uri("/v1/review/summary?movieInfoId=1&top={top}", top)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(ReviewSummary.class)
+                    .consumeWith(result -> assertEquals(1,
+                            Objects.requireNonNull(result.getResponseBody()).getTopReviews().size()));
+        }
+
+        webTestClient
+                .get()
+                .uri("/v1/review/summary?movieInfoId=1&top=1000")
+                .exchange()
+                .expectStatus()
+                .isOk();
+        verify(reviewReactiveRepo).summarizeReviews(1L, 50);
+    }
 }
@@ -0,0 +1,79 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of MovieInfos. A load in progress is an entry of its own, so a refresh or an evict
+ * that arrives while it runs replaces or drops it, and the stale result of that load is never cached.
+ */
+@Component
+public class MovieInfoCache {
+
+    private final boolean enabled;
+    private final AsyncCache<String, MovieInfo> cache;
+
+    public MovieInfoCache(@Value("${restClient.moviesInfo.cache.enabled:true}") boolean enabled,
+                          @Value("${restClient.moviesInfo.cache.maxSize:10000}") long maxSize,
+                          @Value("${restClient.moviesInfo.cache.ttl:10m}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "movieInfo");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The cached MovieInfo, or the result of {@code loader}, which concurrent misses share. The load runs with
+     * a deadline of its own derived from the caller that starts it, see {@link Deadline#forSharedCall}, and
+     * each caller waits on it for its own remaining deadline.
+     */
+    public Mono<MovieInfo> get(String movieId, Function<String, Mono<MovieInfo>> loader) {
+        return Mono.deferContextual(context -> {
+            var cached = cache.get(movieId, (id, executor) -> loader.apply(id)
+                    .contextWrite(Deadline.forSharedCall(Context.of(context)))
+                    .toFuture());
+            // a dependent stage, so one cancelled caller does not cancel the load the others are waiting on
+            return Deadline.awaitWithin(Mono.fromFuture(cached.thenApply(Function.identity())));
+        });
+    }
+
+    public void put(MovieInfo movieInfo) {
+        if (movieInfo.getMovieInfoId() != null) {
+            cache.put(movieInfo.getMovieInfoId(), CompletableFuture.completedFuture(movieInfo));
+        }
+    }
+
+    /**
+     * Replaces an entry only if it is cached or being loaded, so stream events for movies nobody asked for
+     * do not take up space.
+     */
+    public void refresh(MovieInfo movieInfo) {
+        if (movieInfo.getMovieInfoId() != null && cache.asMap().containsKey(movieInfo.getMovieInfoId())) {
+            put(movieInfo);
+        }
+    }
+
+    public void evict(String movieId) {
+        cache.synchronous().invalidate(movieId);
+    }
+}
@@ -0,0 +1,51 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Keeps {@link MovieInfoCache} in line with movies-info-service by following its MovieInfo stream,
+ * so staleness is bounded by stream lag rather than by the cache TTL.
+ */
+@Component
+@Slf4j
+public class MovieInfoCacheUpdater {
+
+    private MoviesInfoRestClient moviesInfoRestClient;
+    private MovieInfoCache movieInfoCache;
+    private Disposable subscription;
+
+    public MovieInfoCacheUpdater(MoviesInfoRestClient moviesInfoRestClient, MovieInfoCache movieInfoCache) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.movieInfoCache = movieInfoCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        if (!movieInfoCache.isEnabled()) {
+            return;
+        }
+        subscription = moviesInfoRestClient.retrieveMovieInfoStream()
+                .doOnNext(movieInfoCache::refresh)
+                .doOnError(ex -> log.warn("MovieInfo stream for cache updates failed : {}", ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30)))
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.reactivespring.client;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent response times in a fixed ring and serves a percentile of them.
+ * The percentile is recomputed every hundred samples to keep recording cheap; recording is synchronized, as
+ * completions of concurrent calls arrive on different event loop threads.
+ */
+public class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 100;
+
+    private final long[] samples;
+    private final double percentile;
+    private long recorded;
+    private volatile long percentileNanos = -1;
+
+    public LatencyTracker(int windowSize, double percentile) {
+        this.samples = new long[windowSize];
+        this.percentile = percentile;
+    }
+
+    public synchronized void record(long nanos) {
+        var count = recorded++;
+        samples[(int) (count % samples.length)] = nanos;
+        if ((count + 1) % RECOMPUTE_EVERY == 0) {
+            recompute(Math.min(count + 1, samples.length));
+        }
+    }
+
+    /**
+     * @return the tracked percentile in nanoseconds, or -1 until enough samples were recorded
+     */
+    public long getPercentileNanos() {
+        return percentileNanos;
+    }
+
+    private void recompute(long size) {
+        var snapshot = Arrays.copyOf(samples, (int) size);
+        Arrays.sort(snapshot);
+        var index = (int) Math.ceil(percentile / 100 * snapshot.length) - 1;
+        percentileNanos = snapshot[Math.max(0, index)];
+    }
+}
@@ -1,20 +1,37 @@
 package com.reactivespring.client;
 
-import com.reactivespring.domain.Movie;
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.config.HttpClientProperties;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.trace.SignalTracer;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
 import reactor.util.retry.Retry;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 @Slf4j
@@ -24,18 +41,127 @@ public class MoviesInfoRestClient {
     @Value("${restClient.moviesInfourl}")
     private String movieInfoUrl;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    private Duration streamResponseTimeout;
+
+    @Value("${restClient.moviesInfo.stream.reconnectMinBackoff:1s}")
+    private Duration streamReconnectMinBackoff;
+
+    @Value("${restClient.moviesInfo.stream.reconnectMaxBackoff:30s}")
+    private Duration streamReconnectMaxBackoff;
+
+    @Value("${restClient.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${restClient.batch.maxSize:50}")
+    private int batchMaxSize;
+
+    @Value("${restClient.batch.window:5ms}")
+    private Duration batchWindow;
+
+    private RequestBatcher<String, MovieInfo> movieInfoBatcher;
+
+    @Value("${restClient.singleFlight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    private final SingleFlight<String, MovieInfo> movieInfoSingleFlight;
+
+    private MovieInfoCache movieInfoCache;
+
+    private CircuitBreaker circuitBreaker;
+
+    private Bulkhead bulkhead;
+
+    private RetryPolicy retryPolicy;
+
+    private SignalTracer signalTracer;
+
+    public MoviesInfoRestClient(@Qualifier("moviesInfoWebClient") WebClient webClient,
+                                MovieInfoCache movieInfoCache,
+                                @Qualifier("moviesInfoCircuitBreaker") CircuitBreaker circuitBreaker,
+                                @Qualifier("moviesInfoBulkhead") Bulkhead bulkhead,
+                                @Qualifier("moviesInfoRetryPolicy") RetryPolicy retryPolicy,
+                                SignalTracer signalTracer,
+                                HttpClientProperties httpClientProperties,
+                                MeterRegistry meterRegistry) {
         this.webClient = webClient;
+        this.movieInfoCache = movieInfoCache;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.retryPolicy = retryPolicy;
+        this.signalTracer = signalTracer;
+        this.streamResponseTimeout = httpClientProperties.getMoviesInfo().getStreamResponseTimeout();
+        this.movieInfoSingleFlight = new SingleFlight<>("movieInfo", meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (batchEnabled) {
+            movieInfoBatcher = new RequestBatcher<>("movieInfo", this::retrieveMovieInfos, batchMaxSize, batchWindow);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (movieInfoBatcher != null) {
+            movieInfoBatcher.dispose();
+        }
     }
 
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
-        var retrySpec = Retry.fixedDelay(3, Duration.ofSeconds(1))
-                .filter(ex -> ex instanceof MoviesInfoServerException)
-                .onRetryExhaustedThrow((retrieveBackOffSpec,retrySignal) ->
-                        Exceptions.propagate(retrySignal.failure()));
+        if (!movieInfoCache.isEnabled()) {
+            return retrieveUncachedMovieInfo(movieId);
+        }
+        return movieInfoCache.get(movieId, this::retrieveUncachedMovieInfo);
+    }
+
+    private Mono<MovieInfo> retrieveUncachedMovieInfo(String movieId) {
+        if (!singleFlightEnabled) {
+            return loadMovieInfo(movieId);
+        }
+        return movieInfoSingleFlight.execute(movieId, () -> loadMovieInfo(movieId));
+    }
+
+    private Mono<MovieInfo> loadMovieInfo(String movieId) {
+        if (movieInfoBatcher == null) {
+            return retrieveSingleMovieInfo(movieId);
+        }
+        return movieInfoBatcher.load(movieId)
+                .switchIfEmpty(Mono.error(new MoviesInfoClientException(
+                        "No MovieInfo found for the given id " + movieId,
+                        HttpStatus.NOT_FOUND.value())));
+    }
+
+    public Mono<Map<String, MovieInfo>> retrieveMovieInfos(List<String> movieIds) {
+        var url = movieInfoUrl.concat("?ids={ids}");
+
+        var attempt = webClient.get()
+                .uri(url, String.join(",", movieIds))
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
 
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new MoviesInfoClientException(
+                                    responseMsg, clientResponse.statusCode().value())));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new MoviesInfoServerException(
+                                    responseMsg)));
+                })
+                .bodyToFlux(MovieInfo.class)
+                .collectMap(MovieInfo::getMovieInfoId)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+
+        return retryPolicy.execute(attempt, ex -> ex instanceof MoviesInfoServerException);
+    }
+
+    private Mono<MovieInfo> retrieveSingleMovieInfo(String movieId) {
         var url = movieInfoUrl.concat("/{id}");
-        return webClient.get()
+        var attempt = webClient.get()
                 .uri(url, movieId)
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
@@ -57,17 +183,79 @@ public class MoviesInfoRestClient {
                                     responseMsg)));
                 })
                 .bodyToMono(MovieInfo.class)
-                //.retry(3)
-                .retryWhen(retrySpec)
-                .log();
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+
+        return retryPolicy.execute(attempt, ex -> ex instanceof MoviesInfoServerException)
+                .transform(signalTracer.mono("retrieveMovieInfo"));
     }
 
+    /**
+     * Follows the MovieInfo event stream for as long as it is subscribed. A dropped or completed connection
+     * is reopened with backoff after the last sequence and epoch seen, and events already delivered are
+     * suppressed; once movies-info answers that the position is unknown, e.g. after it restarted, the stream
+     * resyncs from the start.
+     * Updates and deletes are applied to the MovieInfo cache; deleted MovieInfos are not emitted.
+     */
     public Flux<MovieInfo> retrieveMovieInfoStream() {
-        var url = movieInfoUrl.concat("/stream");
+        return movieInfoStream(false);
+    }
+
+    /**
+     * Like {@link #retrieveMovieInfoStream()}, but starting with the events published after subscribing instead
+     * of the retained history; reconnects still resume after the last sequence seen.
+     */
+    public Flux<MovieInfo> retrieveLiveMovieInfoStream() {
+        return movieInfoStream(true);
+    }
+
+    private Flux<MovieInfo> movieInfoStream(boolean live) {
+        return Flux.defer(() -> {
+            var lastEpoch = new AtomicReference<String>();
+            var lastSequence = new AtomicLong();
+            return Flux.defer(() -> retrieveMovieInfoEvents(lastEpoch.get(), lastSequence.get(), live))
+                    // sequences of another epoch are not comparable with lastSequence
+                    .filter(event -> !Objects.equals(event.getEpoch(), lastEpoch.get())
+                            || event.getSequence() > lastSequence.get())
+                    .doOnNext(event -> {
+                        lastEpoch.set(event.getEpoch());
+                        lastSequence.set(event.getSequence());
+                    })
+                    .doOnError(ex -> log.warn("MovieInfo stream dropped after sequence {} of epoch {} : {}",
+                            lastSequence.get(), lastEpoch.get(), ex.toString()))
+                    // the gap since lastSequence is no longer retained, or lastEpoch is gone, so start over
+                    .onErrorResume(this::isEventsExpired, ex -> {
+                        lastEpoch.set(null);
+                        lastSequence.set(0);
+                        return Flux.empty();
+                    })
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, streamReconnectMinBackoff)
+                            .maxBackoff(streamReconnectMaxBackoff)
+                            .transientErrors(true)
+                            .filter(ex -> !(ex instanceof MoviesInfoClientException)))
+                    .repeatWhen(completed -> completed.delayElements(streamReconnectMinBackoff))
+                    .doOnNext(this::updateCache)
+                    .filter(event -> event.getType() != MovieInfoEvent.Type.DELETE)
+                    .map(MovieInfoEvent::getMovieInfo);
+        });
+    }
+
+    /**
+     * Events after the given sequence of the given epoch or, when {@code after} is 0, all retained events or
+     * only live ones.
+     */
+    public Flux<MovieInfoEvent> retrieveMovieInfoEvents(String epoch, long after, boolean live) {
+        var url = after > 0 && epoch != null ? movieInfoUrl.concat("/events?after={after}&epoch={epoch}")
+                : after > 0 ? movieInfoUrl.concat("/events?after={after}")
+                : live ? movieInfoUrl.concat("/events?live=true") : movieInfoUrl.concat("/events");
 
         return webClient
                 .get()
-                .uri(url)
+                .uri(url, after, epoch)
+                .accept(MediaType.APPLICATION_NDJSON)
+                // the pool's responseTimeout is sized for request/response calls, not a long-lived stream
+                .httpRequest(httpRequest -> httpRequest.<HttpClientRequest>getNativeRequest()
+                        .responseTimeout(streamResponseTimeout))
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is : {}", clientResponse.statusCode().value());
@@ -83,7 +271,19 @@ public class MoviesInfoRestClient {
                             .flatMap(responseMsg -> Mono.error(new MoviesInfoServerException(
                                     responseMsg)));
                 })
-                .bodyToFlux(MovieInfo.class)
-                .log();
+                .bodyToFlux(MovieInfoEvent.class);
+    }
+
+    private void updateCache(MovieInfoEvent event) {
+        if (event.getType() == MovieInfoEvent.Type.DELETE) {
+            movieInfoCache.evict(event.getMovieInfo().getMovieInfoId());
+        } else if (event.getType() == MovieInfoEvent.Type.UPDATE) {
+            movieInfoCache.refresh(event.getMovieInfo());
+        }
+    }
+
+    private boolean isEventsExpired(Throwable ex) {
+        return ex instanceof MoviesInfoClientException
+                && ((MoviesInfoClientException) ex).getStatusCode() == HttpStatus.GONE.value();
     }
 }
@@ -0,0 +1,118 @@
+package com.reactivespring.client;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Collects single-key lookups arriving within a short window (or until maxBatchSize is reached)
+ * and resolves them with one multi-key call, handing each caller back its own value.
+ */
+@Slf4j
+public class RequestBatcher<K, V> {
+
+    private final String name;
+    private final Function<List<K>, Mono<Map<K, V>>> batchLoader;
+    private final Sinks.Many<PendingRequest<K, V>> pendingRequests = Sinks.many().unicast().onBackpressureBuffer();
+    // requests whose caller is still waiting, whether their batch is still collecting or already dispatched
+    private final Set<PendingRequest<K, V>> unresolved = ConcurrentHashMap.newKeySet();
+    private final Disposable dispatcher;
+    // guarded by pendingRequests
+    private boolean disposed;
+
+    public RequestBatcher(String name, Function<List<K>, Mono<Map<K, V>>> batchLoader,
+                          int maxBatchSize, Duration window) {
+        this.name = name;
+        this.batchLoader = batchLoader;
+        this.dispatcher = pendingRequests.asFlux()
+                .bufferTimeout(maxBatchSize, window)
+                .flatMap(this::dispatch)
+                .subscribe();
+    }
+
+    public Mono<V> load(K key) {
+        return Mono.defer(() -> {
+            var request = new PendingRequest<K, V>(key);
+            // callers arrive from many event-loop threads; serializing the emissions here means the sink
+            // never reports FAIL_NON_SERIALIZED, instead of spinning until the other emitter is done
+            synchronized (pendingRequests) {
+                if (disposed) {
+                    return Mono.error(disposedException());
+                }
+                unresolved.add(request);
+                pendingRequests.emitNext(request, Sinks.EmitFailureHandler.FAIL_FAST);
+            }
+            return request.result.asMono()
+                    .doOnCancel(() -> request.cancelled = true)
+                    .doFinally(signal -> unresolved.remove(request));
+        });
+    }
+
+    /**
+     * Stops the batching window and cancels the batches in flight. Callers still waiting for a value fail, and
+     * so does every later {@link #load(Object)}.
+     */
+    public void dispose() {
+        synchronized (pendingRequests) {
+            if (disposed) {
+                return;
+            }
+            disposed = true;
+        }
+        dispatcher.dispose();
+        var error = disposedException();
+        unresolved.forEach(request -> request.result.tryEmitError(error));
+    }
+
+    private IllegalStateException disposedException() {
+        return new IllegalStateException("Request batcher " + name + " is disposed");
+    }
+
+    private Mono<Void> dispatch(List<PendingRequest<K, V>> pending) {
+        // callers that cancelled while waiting for the window are dropped from the batch
+        var batch = pending.stream()
+                .filter(request -> !request.cancelled)
+                .collect(Collectors.toList());
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        var keys = batch.stream()
+                .map(request -> request.key)
+                .distinct()
+                .collect(Collectors.toList());
+        log.debug("Dispatching {} batch of {} keys for {} requests", name, keys.size(), batch.size());
+
+        return batchLoader.apply(keys)
+                .defaultIfEmpty(Map.of())
+                .doOnNext(results -> batch.forEach(request -> {
+                    var value = results.get(request.key);
+                    if (value != null) {
+                        request.result.tryEmitValue(value);
+                    } else {
+                        request.result.tryEmitEmpty();
+                    }
+                }))
+                .doOnError(ex -> batch.forEach(request -> request.result.tryEmitError(ex)))
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    private static class PendingRequest<K, V> {
+        private final K key;
+        private final Sinks.One<V> result = Sinks.one();
+        private volatile boolean cancelled;
+
+        PendingRequest(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.reactivespring.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that caps retries to a share of live traffic: every original request deposits
+ * {@code depositPerRequest} tokens and every retry (or hedge) withdraws one whole token.
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long maxTokens;
+    private final long deposit;
+    private final AtomicLong tokens;
+
+    public RetryBudget(double depositPerRequest, int maxTokens) {
+        this.maxTokens = maxTokens * SCALE;
+        this.deposit = (long) (depositPerRequest * SCALE);
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    public void deposit() {
+        tokens.getAndUpdate(current -> Math.min(maxTokens, current + deposit));
+    }
+
+    public boolean tryWithdraw() {
+        while (true) {
+            var current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double getAvailableTokens() {
+        return (double) tokens.get() / SCALE;
+    }
+}
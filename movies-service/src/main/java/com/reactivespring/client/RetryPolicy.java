@@ -0,0 +1,168 @@
+package com.reactivespring.client;
+
+import com.reactivespring.config.ResilienceProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Retry and hedging policy for one downstream: exponential backoff with jitter, bounded by a
+ * {@link RetryBudget}, plus optional hedged attempts once a call is slower than the tracked percentile.
+ */
+public class RetryPolicy {
+
+    private final ResilienceProperties.Retry retryProperties;
+    private final ResilienceProperties.Hedge hedgeProperties;
+    private final RetryBudget retryBudget;
+    private final LatencyTracker latencyTracker;
+    private final Counter retriedCounter;
+    private final Counter budgetExhaustedCounter;
+    private final Counter hedgedCounter;
+
+    public RetryPolicy(String name, ResilienceProperties.Retry retryProperties,
+                       ResilienceProperties.Hedge hedgeProperties, MeterRegistry meterRegistry) {
+        this.retryProperties = retryProperties;
+        this.hedgeProperties = hedgeProperties;
+        this.retryBudget = new RetryBudget(retryProperties.getBudgetDepositPerRequest(),
+                retryProperties.getBudgetMaxTokens());
+        this.latencyTracker = new LatencyTracker(hedgeProperties.getWindowSize(), hedgeProperties.getPercentile());
+        this.retriedCounter = Counter.builder("movies.client.retries")
+                .tag("client", name)
+                .tag("outcome", "retried")
+                .register(meterRegistry);
+        this.budgetExhaustedCounter = Counter.builder("movies.client.retries")
+                .tag("client", name)
+                .tag("outcome", "budget_exhausted")
+                .register(meterRegistry);
+        this.hedgedCounter = Counter.builder("movies.client.hedges")
+                .tag("client", name)
+                .register(meterRegistry);
+        Gauge.builder("movies.client.retry.budget", retryBudget, RetryBudget::getAvailableTokens)
+                .tag("client", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a call with hedging (when enabled) around each attempt and budgeted retries across attempts.
+     */
+    public <T> Mono<T> execute(Mono<T> attempt, Predicate<Throwable> retryable) {
+        return Mono.defer(() -> {
+            retryBudget.deposit();
+            return hedged(attempt).retryWhen(retrySpec(retryable));
+        });
+    }
+
+    public <T> Flux<T> execute(Flux<T> attempt, Predicate<Throwable> retryable) {
+        return Flux.defer(() -> {
+            retryBudget.deposit();
+            return hedged(attempt).retryWhen(retrySpec(retryable));
+        });
+    }
+
+    private Retry retrySpec(Predicate<Throwable> retryable) {
+        return Retry.backoff(retryProperties.getMaxRetries(), retryProperties.getMinBackoff())
+                .maxBackoff(retryProperties.getMaxBackoff())
+                .jitter(retryProperties.getJitter())
+                .filter(ex -> retryable.test(ex) && withdrawRetryBudget())
+                .doBeforeRetry(retrySignal -> retriedCounter.increment())
+                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) ->
+                        Exceptions.propagate(retrySignal.failure()));
+    }
+
+    // a second attempt is started once the first has been outstanding longer than the hedge delay, unless the
+    // first has failed by then; the first attempt to produce a result wins and the other is cancelled
+    private <T> Mono<T> hedged(Mono<T> attempt) {
+        var timedAttempt = timed(attempt);
+        if (!hedgeProperties.isEnabled()) {
+            return timedAttempt;
+        }
+        // an empty result is a result too, so it must not lose against a slower hedge
+        var presentAttempt = timedAttempt.map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+        return Mono.defer(() -> {
+            var firstFailed = Sinks.empty();
+            var first = presentAttempt.doOnError(ex -> firstFailed.tryEmitEmpty());
+            var hedge = Mono.delay(hedgeDelay())
+                    .takeUntilOther(firstFailed.asMono())
+                    .flatMap(tick -> startHedge(presentAttempt));
+            return Mono.firstWithValue(first, hedge)
+                    .onErrorMap(RetryPolicy::firstFailure)
+                    .flatMap(Mono::justOrEmpty);
+        });
+    }
+
+    // a hedge has to replace the whole response, so hedged attempts race on complete lists
+    private <T> Flux<T> hedged(Flux<T> attempt) {
+        if (!hedgeProperties.isEnabled()) {
+            return timed(attempt);
+        }
+        return hedged(attempt.collectList())
+                .flatMapIterable(values -> values);
+    }
+
+    private <T> Mono<T> startHedge(Mono<T> attempt) {
+        if (!retryBudget.tryWithdraw()) {
+            return Mono.empty();
+        }
+        hedgedCounter.increment();
+        return attempt;
+    }
+
+    // firstWithValue fails only once every attempt has, wrapping their failures; retries and the circuit
+    // breaker need to see the downstream failure itself
+    private static Throwable firstFailure(Throwable ex) {
+        if (ex instanceof NoSuchElementException && ex.getCause() != null) {
+            var failures = Exceptions.unwrapMultiple(ex.getCause());
+            return failures.isEmpty() ? ex : failures.get(0);
+        }
+        return ex;
+    }
+
+    private Duration hedgeDelay() {
+        var percentileNanos = latencyTracker.getPercentileNanos();
+        var minDelay = hedgeProperties.getMinDelay();
+        if (percentileNanos < 0) {
+            return minDelay;
+        }
+        var delay = Duration.ofNanos(percentileNanos);
+        return delay.compareTo(minDelay) > 0 ? delay : minDelay;
+    }
+
+    private boolean withdrawRetryBudget() {
+        if (retryBudget.tryWithdraw()) {
+            return true;
+        }
+        budgetExhaustedCounter.increment();
+        return false;
+    }
+
+    private <T> Mono<T> timed(Mono<T> attempt) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return attempt.doOnSuccess(value -> latencyTracker.record(System.nanoTime() - start));
+        });
+    }
+
+    private <T> Flux<T> timed(Flux<T> attempt) {
+        return Flux.defer(() -> {
+            var start = System.nanoTime();
+            var recorded = new boolean[1];
+            return attempt.doOnEach(signal -> {
+                if (!recorded[0] && (signal.isOnNext() || signal.isOnComplete())) {
+                    recorded[0] = true;
+                    latencyTracker.record(System.nanoTime() - start);
+                }
+            });
+        });
+    }
+}
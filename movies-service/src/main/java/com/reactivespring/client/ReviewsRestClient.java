@@ -1,16 +1,33 @@
 package com.reactivespring.client;
 
+import com.reactivespring.config.HttpClientProperties;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.trace.SignalTracer;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
@@ -20,17 +37,175 @@ public class ReviewsRestClient {
     @Value("${restClient.reviewsurl}")
     private String reviewUrl;
 
-    public ReviewsRestClient(WebClient webClient) {
+    private Duration streamResponseTimeout;
+
+    @Value("${restClient.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${restClient.batch.maxSize:50}")
+    private int batchMaxSize;
+
+    @Value("${restClient.batch.window:5ms}")
+    private Duration batchWindow;
+
+    private RequestBatcher<String, List<Review>> reviewsBatcher;
+
+    @Value("${restClient.singleFlight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    private final SingleFlight<String, List<Review>> reviewsSingleFlight;
+
+    private CircuitBreaker circuitBreaker;
+
+    private Bulkhead bulkhead;
+
+    private RetryPolicy retryPolicy;
+
+    private SignalTracer signalTracer;
+
+    public ReviewsRestClient(@Qualifier("reviewsWebClient") WebClient webClient,
+                             @Qualifier("reviewsCircuitBreaker") CircuitBreaker circuitBreaker,
+                             @Qualifier("reviewsBulkhead") Bulkhead bulkhead,
+                             @Qualifier("reviewsRetryPolicy") RetryPolicy retryPolicy,
+                             SignalTracer signalTracer,
+                             HttpClientProperties httpClientProperties,
+                             MeterRegistry meterRegistry) {
         this.webClient = webClient;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.retryPolicy = retryPolicy;
+        this.signalTracer = signalTracer;
+        this.streamResponseTimeout = httpClientProperties.getReviews().getStreamResponseTimeout();
+        this.reviewsSingleFlight = new SingleFlight<>("reviews", meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (batchEnabled) {
+            reviewsBatcher = new RequestBatcher<>("reviews", this::retrieveReviewsForMovies, batchMaxSize, batchWindow);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reviewsBatcher != null) {
+            reviewsBatcher.dispose();
+        }
     }
 
     public Flux<Review> retrieveReviews(String movieId) {
-        var url = UriComponentsBuilder.fromHttpUrl(reviewUrl)
-                .queryParam("movieInfoId", movieId)
-                .buildAndExpand().toUriString();
+        if (!singleFlightEnabled) {
+            return loadReviews(movieId);
+        }
+        return reviewsSingleFlight.execute(movieId, () -> loadReviews(movieId).collectList())
+                .flatMapIterable(reviews -> reviews);
+    }
+
+    private Flux<Review> loadReviews(String movieId) {
+        if (reviewsBatcher == null) {
+            return retrieveSingleMovieReviews(movieId);
+        }
+        return reviewsBatcher.load(movieId)
+                .flatMapIterable(reviews -> reviews);
+    }
+
+    public Mono<Map<String, List<Review>>> retrieveReviewsForMovies(List<String> movieIds) {
+        var url = reviewUrl.concat("?movieInfoIds={movieInfoIds}");
+
+        var attempt = webClient.get()
+                .uri(url, String.join(",", movieIds))
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+                    if (clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
+                        return Mono.empty();
+                    }
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new ReviewsClientException(responseMsg)));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new ReviewsServerException(responseMsg)));
+                })
+                .bodyToFlux(Review.class)
+                .collect(Collectors.groupingBy(review -> String.valueOf(review.getMovieInfoId())))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+
+        return retryPolicy.execute(attempt, ex -> ex instanceof ReviewsServerException);
+    }
+
+    private Flux<Review> retrieveSingleMovieReviews(String movieId) {
+        var url = reviewUrl.concat("?movieInfoId={movieInfoId}");
+
+        var attempt = webClient.get()
+                .uri(url, movieId)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+                    if (clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
+                        return Mono.empty();
+                    }
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new ReviewsClientException(responseMsg)));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new ReviewsServerException(responseMsg)));
+                })
+                .bodyToFlux(Review.class)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+
+        return retryPolicy.execute(attempt, ex -> ex instanceof ReviewsServerException)
+                .transform(signalTracer.flux("retrieveReviews"));
+    }
+
+    public Mono<ReviewSummary> retrieveReviewSummary(String movieId, int top) {
+        var url = reviewUrl.concat("/summary?movieInfoId={movieInfoId}&top={top}");
+
+        var attempt = webClient.get()
+                .uri(url, movieId, top)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+                    if (clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
+                        return Mono.empty();
+                    }
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new ReviewsClientException(responseMsg)));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new ReviewsServerException(responseMsg)));
+                })
+                .bodyToMono(ReviewSummary.class)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+
+        return retryPolicy.execute(attempt, ex -> ex instanceof ReviewsServerException);
+    }
+
+    /**
+     * Streams one page of a movie's reviews as they are decoded, ordered by reviewId. It is not retried,
+     * because reviews already handed to the caller would be delivered again.
+     */
+    public Flux<Review> retrieveReviewsPage(String movieId, String afterReviewId, int limit) {
+        var url = reviewUrl.concat("?movieInfoId={movieInfoId}&limit={limit}");
+        Object[] uriVariables = {movieId, limit};
+        if (afterReviewId != null) {
+            url = url.concat("&afterReviewId={afterReviewId}");
+            uriVariables = new Object[]{movieId, limit, afterReviewId};
+        }
 
         return webClient.get()
-                .uri(url)
+                .uri(url, uriVariables)
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is : {}", clientResponse.statusCode().value());
@@ -47,6 +222,35 @@ public class ReviewsRestClient {
                             .flatMap(responseMsg -> Mono.error(new ReviewsServerException(responseMsg)));
                 })
                 .bodyToFlux(Review.class)
-                .log();
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Reviews added after subscribing; the history the review service replays to new subscribers is skipped.
+     */
+    public Flux<Review> retrieveReviewStream() {
+        var url = reviewUrl.concat("/stream?live=true");
+
+        return webClient
+                .get()
+                .uri(url)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .httpRequest(httpRequest -> httpRequest.<HttpClientRequest>getNativeRequest()
+                        .responseTimeout(streamResponseTimeout))
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new ReviewsClientException(responseMsg)));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMsg -> Mono.error(new ReviewsServerException(responseMsg)));
+                })
+                .bodyToFlux(Review.class);
     }
 }
@@ -0,0 +1,67 @@
+package com.reactivespring.client;
+
+import com.reactivespring.deadline.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight call per key between all concurrent callers. The entry is dropped as soon as
+ * the call terminates, so later callers always trigger a fresh call.
+ * <p>
+ * The shared call runs with a {@link Deadline} of its own for the full route budget, not with the first
+ * caller's, otherwise a caller with a short budget would fail everyone it was coalesced with; each caller waits
+ * on it for its own remaining budget instead.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executedCounter;
+    private final Counter coalescedCounter;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executedCounter = Counter.builder("movies.client.singleflight")
+                .tag("client", name)
+                .tag("outcome", "executed")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("movies.client.singleflight")
+                .tag("client", name)
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            var created = new AtomicReference<Mono<V>>();
+            var shared = inFlight.computeIfAbsent(key, k -> {
+                // drop the entry before the result is handed out, so a caller reacting to it starts a fresh call
+                Mono<V> mono = call.get()
+                        .contextWrite(Deadline::forSharedCall)
+                        .doOnEach(signal -> inFlight.remove(k, created.get()))
+                        .doOnCancel(() -> inFlight.remove(k, created.get()))
+                        .share();
+                created.set(mono);
+                return mono;
+            });
+            if (shared == created.get()) {
+                executedCounter.increment();
+            } else {
+                coalescedCounter.increment();
+            }
+            return Deadline.awaitWithin(shared);
+        });
+    }
+
+    public long getExecutedCount() {
+        return (long) executedCounter.count();
+    }
+
+    public long getCoalescedCount() {
+        return (long) coalescedCounter.count();
+    }
+}
@@ -0,0 +1,44 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "rest-client.http")
+public class HttpClientProperties {
+
+    /**
+     * Use the native epoll/kqueue transport when it is available on this platform.
+     */
+    private boolean preferNative = true;
+
+    private Downstream moviesInfo = new Downstream();
+    private Downstream reviews = new Downstream();
+
+    @Data
+    public static class Downstream {
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration responseTimeout = Duration.ofSeconds(5);
+        private Duration streamResponseTimeout = Duration.ofMinutes(10);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private boolean keepAlive = true;
+        private boolean http2Cleartext = false;
+
+        /**
+         * Ask for Smile instead of JSON on request/response calls; streams always negotiate NDJSON.
+         */
+        private boolean preferSmile = true;
+
+        /**
+         * Send Accept-Encoding and transparently decompress gzip/deflate responses.
+         */
+        private boolean compress = true;
+    }
+}
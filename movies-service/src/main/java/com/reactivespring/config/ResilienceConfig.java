@@ -0,0 +1,110 @@
+package com.reactivespring.config;
+
+import com.reactivespring.client.RetryPolicy;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsClientException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ResilienceProperties.class)
+@Slf4j
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+        var registry = CircuitBreakerRegistry.ofDefaults();
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(MeterRegistry meterRegistry) {
+        var registry = BulkheadRegistry.ofDefaults();
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public CircuitBreaker moviesInfoCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry,
+                                                   ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return circuitBreaker("moviesInfo", properties.getMoviesInfo().getCircuitBreaker(),
+                MoviesInfoClientException.class, circuitBreakerRegistry, meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreaker reviewsCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry,
+                                                ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return circuitBreaker("reviews", properties.getReviews().getCircuitBreaker(),
+                ReviewsClientException.class, circuitBreakerRegistry, meterRegistry);
+    }
+
+    @Bean
+    public Bulkhead moviesInfoBulkhead(BulkheadRegistry bulkheadRegistry, ResilienceProperties properties) {
+        return bulkhead("moviesInfo", properties.getMoviesInfo().getBulkhead(), bulkheadRegistry);
+    }
+
+    @Bean
+    public Bulkhead reviewsBulkhead(BulkheadRegistry bulkheadRegistry, ResilienceProperties properties) {
+        return bulkhead("reviews", properties.getReviews().getBulkhead(), bulkheadRegistry);
+    }
+
+    @Bean
+    public RetryPolicy moviesInfoRetryPolicy(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return new RetryPolicy("moviesInfo", properties.getMoviesInfo().getRetry(),
+                properties.getMoviesInfo().getHedge(), meterRegistry);
+    }
+
+    @Bean
+    public RetryPolicy reviewsRetryPolicy(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        return new RetryPolicy("reviews", properties.getReviews().getRetry(),
+                properties.getReviews().getHedge(), meterRegistry);
+    }
+
+    // 4xx responses and a full bulkhead say nothing about the health of the downstream, so they don't trip the breaker
+    private CircuitBreaker circuitBreaker(String name, ResilienceProperties.CircuitBreaker properties,
+                                          Class<? extends Throwable> clientException,
+                                          CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry) {
+        var config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(properties.getSlowCallDurationThreshold())
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(properties.getPermittedNumberOfCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .ignoreExceptions(clientException, BulkheadFullException.class)
+                .build();
+        var circuitBreaker = circuitBreakerRegistry.circuitBreaker(name, config);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Circuit breaker {} : {}", name, event.getStateTransition());
+            meterRegistry.counter("movies.client.circuitbreaker.transitions",
+                    "name", name,
+                    "from", event.getStateTransition().getFromState().name(),
+                    "to", event.getStateTransition().getToState().name())
+                    .increment();
+        });
+        return circuitBreaker;
+    }
+
+    private Bulkhead bulkhead(String name, ResilienceProperties.Bulkhead properties, BulkheadRegistry bulkheadRegistry) {
+        var config = BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getMaxWaitDuration())
+                .build();
+        return bulkheadRegistry.bulkhead(name, config);
+    }
+}
@@ -0,0 +1,60 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "rest-client.resilience")
+public class ResilienceProperties {
+
+    private Downstream moviesInfo = new Downstream();
+    private Downstream reviews = new Downstream();
+
+    @Data
+    public static class Downstream {
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private Bulkhead bulkhead = new Bulkhead();
+        private Retry retry = new Retry();
+        private Hedge hedge = new Hedge();
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(2);
+        private int slidingWindowSize = 50;
+        private int minimumNumberOfCalls = 20;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedNumberOfCallsInHalfOpenState = 5;
+    }
+
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 50;
+        private Duration maxWaitDuration = Duration.ZERO;
+    }
+
+    @Data
+    public static class Retry {
+        private int maxRetries = 3;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private double jitter = 0.5;
+        /**
+         * Tokens added to the retry budget by every original request; 0.2 allows retries for 20% of traffic.
+         */
+        private double budgetDepositPerRequest = 0.2;
+        private int budgetMaxTokens = 20;
+    }
+
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        private double percentile = 95;
+        private Duration minDelay = Duration.ofMillis(20);
+        private int windowSize = 1000;
+    }
+}
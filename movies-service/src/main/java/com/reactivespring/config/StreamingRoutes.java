@@ -0,0 +1,37 @@
+package com.reactivespring.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tells the long-lived streaming requests apart from the short ones. Their duration is how long the client
+ * listens, so the per-request deadline and the adaptive concurrency limit both leave them alone.
+ */
+@Component
+@EnableConfigurationProperties(StreamingRoutesProperties.class)
+public class StreamingRoutes {
+
+    private final StreamingRoutesProperties properties;
+    private final List<PathPattern> routes;
+
+    public StreamingRoutes(StreamingRoutesProperties properties) {
+        this.properties = properties;
+        this.routes = properties.getRoutes().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .collect(Collectors.toList());
+    }
+
+    public boolean matches(ServerWebExchange exchange) {
+        var path = exchange.getRequest().getPath().pathWithinApplication();
+        var queryParams = exchange.getRequest().getQueryParams();
+        return routes.stream().anyMatch(pattern -> pattern.matches(path))
+                || properties.getParams().entrySet().stream()
+                .anyMatch(param -> param.getValue().equals(queryParams.getFirst(param.getKey())));
+    }
+}
@@ -0,0 +1,22 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "streaming-routes")
+public class StreamingRoutesProperties {
+
+    /**
+     * Long-lived streaming routes, keyed by path pattern.
+     */
+    private List<String> routes = List.of("/v1/movies/stream", "/v1/movies/stream/**");
+
+    /**
+     * Query parameter values selecting the streaming variant of an otherwise short-lived route.
+     */
+    private Map<String, String> params = Map.of("reviews", "stream");
+}
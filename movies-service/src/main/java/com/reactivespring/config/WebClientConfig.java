@@ -1,13 +1,97 @@
 package com.reactivespring.config;
 
+import com.reactivespring.deadline.DeadlineExchangeFilterFunction;
+import com.reactivespring.metrics.DownstreamMetricsExchangeFilterFunction;
+import com.reactivespring.metrics.DownstreamWebClientExchangeTagsProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.HttpResources;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+import java.util.Map;
 
 @Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
 public class WebClientConfig {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(HttpClientProperties properties) {
+        return connectionProvider("moviesInfo", properties.getMoviesInfo());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(HttpClientProperties properties) {
+        return connectionProvider("reviews", properties.getReviews());
+    }
+
+    @Bean
+    public WebClient moviesInfoWebClient(WebClient.Builder builder, HttpClientProperties properties,
+                                         ConnectionProvider moviesInfoConnectionProvider, MeterRegistry meterRegistry) {
+        return webClient("moviesInfo", builder,
+                httpClient(moviesInfoConnectionProvider, properties.getMoviesInfo(), properties),
+                properties.getMoviesInfo(), meterRegistry);
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient reviewsWebClient(WebClient.Builder builder, HttpClientProperties properties,
+                                      ConnectionProvider reviewsConnectionProvider, MeterRegistry meterRegistry) {
+        return webClient("reviews", builder,
+                httpClient(reviewsConnectionProvider, properties.getReviews(), properties),
+                properties.getReviews(), meterRegistry);
+    }
+
+    private WebClient webClient(String name, WebClient.Builder builder, HttpClient httpClient,
+                                HttpClientProperties.Downstream downstream, MeterRegistry meterRegistry) {
+        // the builder already carries the http.client.requests filter, which tags each call with this client name
+        var webClientBuilder = builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultRequest(request ->
+                        request.attribute(DownstreamWebClientExchangeTagsProvider.CLIENT_ATTRIBUTE, name))
+                .filter(new DownstreamMetricsExchangeFilterFunction(name, meterRegistry))
+                .filter(new DeadlineExchangeFilterFunction());
+        if (downstream.isPreferSmile()) {
+            // JSON stays acceptable, so a downstream without the Smile codec keeps working
+            webClientBuilder.defaultHeaders(headers -> headers.setAccept(List.of(APPLICATION_SMILE,
+                    new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.9")))));
+        }
+        return webClientBuilder.build();
+    }
+
+    private ConnectionProvider connectionProvider(String name, HttpClientProperties.Downstream downstream) {
+        // metrics(true) publishes active/idle/pending connection gauges per pool
+        return ConnectionProvider.builder(name)
+                .maxConnections(downstream.getMaxConnections())
+                .pendingAcquireMaxCount(downstream.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(downstream.getPendingAcquireTimeout())
+                .maxIdleTime(downstream.getMaxIdleTime())
+                .maxLifeTime(downstream.getMaxLifeTime())
+                .evictInBackground(downstream.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    private HttpClient httpClient(ConnectionProvider connectionProvider, HttpClientProperties.Downstream downstream,
+                                  HttpClientProperties properties) {
+        var httpClient = HttpClient.create(connectionProvider)
+                .runOn(HttpResources.get(), properties.isPreferNative())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) downstream.getConnectTimeout().toMillis())
+                .responseTimeout(downstream.getResponseTimeout())
+                .keepAlive(downstream.isKeepAlive())
+                .compress(downstream.isCompress());
+        if (downstream.isHttp2Cleartext()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        return httpClient;
     }
 }
@@ -0,0 +1,54 @@
+package com.reactivespring.controller;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one piece of work per key at a time. Work for a busy key waits in a single slot, replacing the
+ * work that waited there before, and runs once the current work is done, so the results for one key come out
+ * in arrival order and never from older work after newer work. Only keys with work in flight are held.
+ */
+class LatestPerKey<K, T> {
+
+    private final Set<K> busy = new HashSet<>();
+    private final Map<K, Supplier<Mono<T>>> waiting = new HashMap<>();
+
+    /**
+     * The result of {@code work} followed by the results of the work that waited for it, or nothing when the
+     * key is busy and {@code work} was left waiting instead.
+     */
+    synchronized Flux<T> run(K key, Supplier<Mono<T>> work) {
+        if (!busy.add(key)) {
+            waiting.put(key, work);
+            return Flux.empty();
+        }
+        // the next work is only taken from the slot when the current one is done, which keeps the key busy
+        return attempt(work)
+                .expand(done -> Mono.defer(() -> next(key)).flatMap(this::attempt))
+                .filter(Optional::isPresent)
+                .map(Optional::get);
+    }
+
+    private synchronized Mono<Supplier<Mono<T>>> next(K key) {
+        var next = waiting.remove(key);
+        if (next == null) {
+            busy.remove(key);
+            return Mono.empty();
+        }
+        return Mono.just(next);
+    }
+
+    // work that completes empty still has to hand the key on to the waiting work
+    private Mono<Optional<T>> attempt(Supplier<Mono<T>> work) {
+        return Mono.defer(work)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+}
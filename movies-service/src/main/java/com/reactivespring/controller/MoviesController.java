@@ -1,38 +1,182 @@
 package com.reactivespring.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.client.ReviewsRestClient;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import javax.print.attribute.standard.Media;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/v1/movies")
+@Slf4j
 public class MoviesController {
 
     private MoviesInfoRestClient moviesInfoRestClient;
     private ReviewsRestClient reviewsRestClient;
 
-    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
+    @Value("${restClient.reviews.timeout:2s}")
+    private Duration reviewsTimeout;
+
+    @Value("${restClient.reviews.degradeOnFailure:true}")
+    private boolean degradeOnReviewsFailure;
+
+    @Value("${restClient.enrichedStream.concurrency:8}")
+    private int enrichedStreamConcurrency;
+
+    @Value("${restClient.reviews.stream.maxReviews:1000}")
+    private int maxStreamedReviews;
+
+    private ObjectMapper objectMapper;
+
+    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient,
+                            ObjectMapper objectMapper) {
         this.moviesInfoRestClient = moviesInfoRestClient;
         this.reviewsRestClient = reviewsRestClient;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{id}")
     public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
+        // both downstream calls only need the movieId, so run them concurrently
+        var movieInfoMono = moviesInfoRestClient.retrieveMovieInfo(movieId);
+        var reviewsListMono = retrieveReviewList(movieId);
+
+        return Mono.zip(movieInfoMono, reviewsListMono)
+                .map(tuple -> new Movie(tuple.getT1(), tuple.getT2()));
+    }
+
+    /**
+     * Returns the movie with review statistics and its top rated reviews instead of the full review list;
+     * the aggregation runs in movies-review-service, so only the summary crosses the wire.
+     */
+    @GetMapping(value = "/{id}", params = "reviews=summary")
+    public Mono<Movie> retrieveMovieByIdWithReviewSummary(@PathVariable("id") String movieId,
+                                                          @RequestParam(name = "top", defaultValue = "3") int top) {
+        var movieInfoMono = moviesInfoRestClient.retrieveMovieInfo(movieId);
+        var reviewSummaryMono = retrieveReviewSummary(movieId, top);
+
+        return Mono.zip(movieInfoMono, reviewSummaryMono)
+                .map(tuple -> new Movie(tuple.getT1(), tuple.getT2()));
+    }
+
+    private Mono<ReviewSummary> retrieveReviewSummary(String movieId, int top) {
+        var reviewSummaryMono = reviewsRestClient.retrieveReviewSummary(movieId, top)
+                .defaultIfEmpty(new ReviewSummary(null, 0, null, List.of()));
+        if (!degradeOnReviewsFailure) {
+            return reviewSummaryMono;
+        }
+        return reviewSummaryMono
+                .timeout(reviewsTimeout)
+                .onErrorResume(ex -> {
+                    log.warn("Review summary unavailable for movieId {}, returning an empty summary : {}",
+                            movieId, ex.toString());
+                    return Mono.just(new ReviewSummary(null, 0, null, List.of()));
+                });
+    }
+
+    /**
+     * Writes the movie as JSON while its reviews are still arriving: movieInfo goes out first, then each
+     * review as soon as it is decoded, so memory stays flat whatever the review count. At most
+     * maxReviews reviews are written; when more remain (or the review stream fails midway) the response
+     * carries a continuation token to fetch the rest with.
+     */
+    @GetMapping(value = "/{id}", params = "reviews=stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> retrieveMovieByIdStreamingReviews(@PathVariable("id") String movieId,
+                                                             @RequestParam(name = "continuation", required = false)
+                                                                     String continuation) {
+        var afterReviewId = decodeContinuation(continuation);
+
         return moviesInfoRestClient.retrieveMovieInfo(movieId)
-                .flatMap(movieInfo -> {
-                    var reviewsListMono = reviewsRestClient.retrieveReviews(movieId)
-                            .collectList();
-                    return reviewsListMono.map(reviews -> new Movie(movieInfo, reviews));
+                .flatMapMany(movieInfo -> {
+                    var lastReviewId = new AtomicReference<>(afterReviewId);
+                    var hasMore = new AtomicBoolean();
+                    var reviews = reviewsRestClient.retrieveReviewsPage(movieId, afterReviewId, maxStreamedReviews + 1)
+                            .index()
+                            .<byte[]>handle((indexedReview, sink) -> {
+                                if (indexedReview.getT1() >= maxStreamedReviews) {
+                                    hasMore.set(true);
+                                    return;
+                                }
+                                try {
+                                    sink.next(json(indexedReview.getT1() == 0 ? "" : ",", indexedReview.getT2()));
+                                    lastReviewId.set(indexedReview.getT2().getReviewId());
+                                } catch (JsonProcessingException ex) {
+                                    sink.error(ex);
+                                }
+                            })
+                            .onErrorResume(ex -> {
+                                log.warn("Review stream for movieId {} failed midway, returning continuation : {}",
+                                        movieId, ex.toString());
+                                hasMore.set(true);
+                                return Flux.empty();
+                            });
+
+                    return Flux.concat(
+                            Mono.fromCallable(() -> json("{\"movieInfo\":", movieInfo)),
+                            Mono.just(",\"reviewList\":[".getBytes(StandardCharsets.UTF_8)),
+                            reviews,
+                            Mono.fromCallable(() -> closeMovie(hasMore.get() ? lastReviewId.get() : null)));
+                })
+                .map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+
+    private byte[] json(String prefix, Object value) throws JsonProcessingException {
+        return (prefix + objectMapper.writeValueAsString(value)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] closeMovie(String continueAfterReviewId) {
+        var continuation = continueAfterReviewId == null ? "" : ",\"continuation\":\"" + Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(continueAfterReviewId.getBytes(StandardCharsets.UTF_8)) + "\"";
+        return ("]" + continuation + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String decodeContinuation(String continuation) {
+        if (continuation == null) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(continuation), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new ServerWebInputException("Invalid continuation token");
+        }
+    }
+
+    private Mono<List<Review>> retrieveReviewList(String movieId) {
+        var reviewsListMono = reviewsRestClient.retrieveReviews(movieId)
+                .collectList();
+        if (!degradeOnReviewsFailure) {
+            return reviewsListMono;
+        }
+        return reviewsListMono
+                .timeout(reviewsTimeout)
+                .onErrorResume(ex -> {
+                    log.warn("Reviews unavailable for movieId {}, returning movie without reviews : {}",
+                            movieId, ex.toString());
+                    return Mono.just(List.of());
                 });
     }
 
@@ -40,4 +184,43 @@ public class MoviesController {
     public Flux<MovieInfo> retrieveMovieInfos() {
         return moviesInfoRestClient.retrieveMovieInfoStream();
     }
+
+    /**
+     * Pushes complete movies as they change: every live MovieInfo event is joined with its reviews, and every
+     * new review re-emits the movie it belongs to. Lookups run with bounded concurrency and each movie is
+     * emitted as soon as it is complete, so one slow lookup does not hold back the other movies. The events of
+     * one movie are enriched one at a time in arrival order; those arriving while it is being enriched collapse
+     * into one more enrichment with the latest of them, so a movie is never followed by an older version of it.
+     */
+    @GetMapping(value = "/stream/enriched", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMovieStream() {
+        return Flux.defer(() -> {
+            var latestPerMovie = new LatestPerKey<String, Movie>();
+            var movieInfoEvents = moviesInfoRestClient.retrieveLiveMovieInfoStream()
+                    .map(movieInfo -> latestPerMovie.run(movieInfo.getMovieInfoId(),
+                            () -> enrich(Mono.just(movieInfo))));
+            var reviewEvents = reviewsRestClient.retrieveReviewStream()
+                    .onErrorResume(ex -> {
+                        log.warn("Review stream unavailable, enriched stream continues with movie info events only : {}",
+                                ex.toString());
+                        return Flux.empty();
+                    })
+                    .map(review -> String.valueOf(review.getMovieInfoId()))
+                    .map(movieId -> latestPerMovie.run(movieId,
+                            () -> enrich(moviesInfoRestClient.retrieveMovieInfo(movieId))));
+
+            return Flux.merge(movieInfoEvents, reviewEvents)
+                    .flatMap(movies -> movies, enrichedStreamConcurrency);
+        });
+    }
+
+    private Mono<Movie> enrich(Mono<MovieInfo> movieInfoMono) {
+        return movieInfoMono
+                .flatMap(movieInfo -> retrieveReviewList(movieInfo.getMovieInfoId())
+                        .map(reviews -> new Movie(movieInfo, reviews)))
+                .onErrorResume(ex -> {
+                    log.warn("Skipping stream event that could not be enriched : {}", ex.toString());
+                    return Mono.empty();
+                });
+    }
 }
@@ -0,0 +1,68 @@
+package com.reactivespring.deadline;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Point in time by which a request must be answered. It travels in the Reactor context of the inbound
+ * request and is forwarded to downstreams as the remaining budget in {@link #TIMEOUT_HEADER}.
+ */
+public class Deadline {
+
+    public static final String CONTEXT_KEY = Deadline.class.getName();
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final long deadlineNanos;
+    private final Duration routeBudget;
+
+    private Deadline(long deadlineNanos, Duration routeBudget) {
+        this.deadlineNanos = deadlineNanos;
+        this.routeBudget = routeBudget;
+    }
+
+    public static Deadline after(Duration budget) {
+        return after(budget, budget);
+    }
+
+    /**
+     * A deadline for {@code budget}, which a caller may have tightened below the {@code routeBudget} of the
+     * route it called.
+     */
+    public static Deadline after(Duration budget, Duration routeBudget) {
+        return new Deadline(System.nanoTime() + budget.toNanos(), routeBudget);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Replaces the deadline in {@code context}, if any, with one for a call that other callers may join: the
+     * full route budget from now, since the remaining budget of the caller starting the call may be far shorter
+     * than what the callers joining it have left.
+     */
+    public static Context forSharedCall(Context context) {
+        return context.<Deadline>getOrEmpty(CONTEXT_KEY)
+                .map(deadline -> context.put(CONTEXT_KEY, Deadline.after(deadline.routeBudget)))
+                .orElse(context);
+    }
+
+    /**
+     * Waits on a call shared with other callers, which runs with a deadline of its own (see
+     * {@link #forSharedCall(Context)}), for no longer than the deadline in the subscriber's context, if any.
+     */
+    public static <T> Mono<T> awaitWithin(Mono<T> shared) {
+        return Mono.deferContextual(context -> context.<Deadline>getOrEmpty(CONTEXT_KEY)
+                .map(deadline -> deadline.isExpired()
+                        ? Mono.<T>error(new TimeoutException("Deadline expired before joining the shared call"))
+                        : shared.timeout(deadline.remaining()))
+                .orElse(shared));
+    }
+}
@@ -0,0 +1,35 @@
+package com.reactivespring.deadline;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Forwards the remaining budget of the inbound request to the downstream and stops waiting for it
+ * once that budget is spent. Calls made outside of an inbound request carry no deadline.
+ */
+public class DeadlineExchangeFilterFunction implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            var deadline = context.<Deadline>getOrEmpty(Deadline.CONTEXT_KEY);
+            if (deadline.isEmpty()) {
+                return next.exchange(request);
+            }
+            if (deadline.get().isExpired()) {
+                return Mono.error(new TimeoutException("Deadline expired before calling " + request.url()));
+            }
+            var remaining = deadline.get().remaining();
+            var requestWithDeadline = ClientRequest.from(request)
+                    .header(Deadline.TIMEOUT_HEADER, String.valueOf(remaining.toMillis()))
+                    .build();
+            return next.exchange(requestWithDeadline)
+                    .timeout(remaining);
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.reactivespring.deadline;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "deadline")
+public class DeadlineProperties {
+
+    private boolean enabled = true;
+
+    private Duration defaultBudget = Duration.ofSeconds(5);
+
+    /**
+     * Budget per route, keyed by path pattern; the first matching pattern wins.
+     */
+    private Map<String, Duration> routes = new LinkedHashMap<>();
+}
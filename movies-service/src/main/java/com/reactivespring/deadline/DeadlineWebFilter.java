@@ -0,0 +1,77 @@
+package com.reactivespring.deadline;
+
+import com.reactivespring.config.StreamingRoutes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts the deadline for every inbound route but the {@link StreamingRoutes} from its configured budget (or the
+ * caller's tighter {@link Deadline#TIMEOUT_HEADER}) and cancels the whole pipeline, downstream calls included,
+ * once it expires.
+ */
+@Component
+@EnableConfigurationProperties(DeadlineProperties.class)
+@Slf4j
+public class DeadlineWebFilter implements WebFilter {
+
+    private final DeadlineProperties properties;
+    private final StreamingRoutes streamingRoutes;
+    private final Map<PathPattern, Duration> routeBudgets = new LinkedHashMap<>();
+
+    public DeadlineWebFilter(DeadlineProperties properties, StreamingRoutes streamingRoutes) {
+        this.properties = properties;
+        this.streamingRoutes = streamingRoutes;
+        properties.getRoutes().forEach((pattern, budget) ->
+                routeBudgets.put(PathPatternParser.defaultInstance.parse(pattern), budget));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!properties.isEnabled() || streamingRoutes.matches(exchange)) {
+            return chain.filter(exchange);
+        }
+
+        var routeBudget = routeBudgets.entrySet().stream()
+                .filter(entry -> entry.getKey().matches(path))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(properties.getDefaultBudget());
+        var budget = routeBudget;
+        var callerTimeout = exchange.getRequest().getHeaders().getFirst(Deadline.TIMEOUT_HEADER);
+        if (callerTimeout != null) {
+            try {
+                var callerBudget = Duration.ofMillis(Long.parseLong(callerTimeout));
+                budget = callerBudget.compareTo(budget) < 0 ? callerBudget : budget;
+            } catch (NumberFormatException ex) {
+                log.debug("Ignoring malformed {} header : {}", Deadline.TIMEOUT_HEADER, callerTimeout);
+            }
+        }
+
+        var deadline = Deadline.after(budget, routeBudget);
+        return chain.filter(exchange)
+                .timeout(budget)
+                .onErrorResume(TimeoutException.class, ex -> {
+                    log.warn("Deadline exceeded for {} {}", exchange.getRequest().getMethod(), path);
+                    if (exchange.getResponse().isCommitted()) {
+                        return Mono.error(ex);
+                    }
+                    exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+                    return exchange.getResponse().setComplete();
+                })
+                .contextWrite(context -> context.put(Deadline.CONTEXT_KEY, deadline));
+    }
+}
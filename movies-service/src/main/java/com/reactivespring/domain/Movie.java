@@ -1,6 +1,7 @@
 package com.reactivespring.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,8 +11,20 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviewList;
+    private ReviewSummary reviewSummary;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this.movieInfo = movieInfo;
+        this.reviewList = reviewList;
+    }
+
+    public Movie(MovieInfo movieInfo, ReviewSummary reviewSummary) {
+        this.movieInfo = movieInfo;
+        this.reviewSummary = reviewSummary;
+    }
 }
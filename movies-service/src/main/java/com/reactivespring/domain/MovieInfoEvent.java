@@ -0,0 +1,20 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    private String epoch;
+    private long sequence;
+    private Type type;
+    private MovieInfo movieInfo;
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+}
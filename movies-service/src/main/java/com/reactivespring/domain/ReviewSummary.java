@@ -0,0 +1,18 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private long count;
+    private Double averageRating;
+    private List<Review> topReviews;
+}
@@ -0,0 +1,76 @@
+package com.reactivespring.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient-style concurrency limit. Each completed request compares its latency with a slowly moving
+ * baseline: at or near the baseline the limit grows by about its square root, above it the limit shrinks in
+ * proportion, and a dropped request cuts it multiplicatively. Requests beyond the limit are rejected
+ * instead of queued.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double baselineRttNanos = -1;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long rttNanos) {
+        var inFlightAtCompletion = inFlight.getAndDecrement();
+        update(rttNanos, inFlightAtCompletion);
+    }
+
+    public void releaseDropped() {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+        }
+    }
+
+    // a cancelled request carries no latency signal
+    public void releaseIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtCompletion) {
+        if (baselineRttNanos < 0) {
+            baselineRttNanos = rttNanos;
+        } else {
+            baselineRttNanos += (rttNanos - baselineRttNanos) * properties.getBaselineSmoothing();
+        }
+
+        var gradient = Math.max(0.5, Math.min(1.0, properties.getTolerance() * baselineRttNanos / rttNanos));
+        // an underused limit says nothing about capacity, so it only grows while it is actually being reached
+        if (gradient >= 1.0 && inFlightAtCompletion < limit / 2) {
+            return;
+        }
+        var estimate = limit * gradient + Math.sqrt(limit);
+        var smoothed = limit * (1 - properties.getSmoothing()) + estimate * properties.getSmoothing();
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), smoothed));
+    }
+}
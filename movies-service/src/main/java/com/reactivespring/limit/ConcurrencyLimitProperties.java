@@ -0,0 +1,47 @@
+package com.reactivespring.limit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    private int initialLimit = 100;
+
+    private int minLimit = 10;
+
+    private int maxLimit = 1000;
+
+    /**
+     * How far latency may rise above the baseline before the limit is reduced.
+     */
+    private double tolerance = 1.5;
+
+    /**
+     * Weight of each new sample when moving the limit towards its new estimate.
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Weight of each new sample in the long-term latency baseline; small, so the baseline moves slowly.
+     */
+    private double baselineSmoothing = 0.01;
+
+    /**
+     * Factor the limit is multiplied by whenever a request is dropped (timed out, shed or failed).
+     */
+    private double backoffRatio = 0.9;
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * Limited routes; the {@link com.reactivespring.config.StreamingRoutes} among them are never limited.
+     */
+    private List<String> routes = List.of("/v1/movies/**");
+}
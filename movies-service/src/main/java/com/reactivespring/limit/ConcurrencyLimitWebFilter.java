@@ -0,0 +1,114 @@
+package com.reactivespring.limit;
+
+import com.reactivespring.config.StreamingRoutes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Sheds inbound requests above the adaptive concurrency limit with an immediate 503, so that under overload
+ * the admitted requests still finish within their deadline instead of all of them timing out in a queue.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+@Slf4j
+public class ConcurrencyLimitWebFilter implements WebFilter {
+
+    private static final long REJECTION_WARN_INTERVAL_NANOS = Duration.ofSeconds(10).toNanos();
+
+    private final ConcurrencyLimitProperties properties;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final StreamingRoutes streamingRoutes;
+    private final List<PathPattern> routes;
+    private final Counter rejectedCounter;
+    private final AtomicLong rejectedSinceWarn = new AtomicLong();
+    private final AtomicLong nextRejectionWarnNanos = new AtomicLong(System.nanoTime());
+
+    public ConcurrencyLimitWebFilter(ConcurrencyLimitProperties properties, StreamingRoutes streamingRoutes,
+                                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.streamingRoutes = streamingRoutes;
+        this.limiter = new AdaptiveConcurrencyLimiter(properties);
+        this.routes = properties.getRoutes().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .collect(Collectors.toList());
+        Gauge.builder("movies.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("movies.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("movies.concurrency.rejected")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!properties.isEnabled()
+                || routes.stream().noneMatch(pattern -> pattern.matches(path))
+                || streamingRoutes.matches(exchange)) {
+            return chain.filter(exchange);
+        }
+
+        if (!limiter.tryAcquire()) {
+            rejectedCounter.increment();
+            logRejection(exchange, path.value());
+            var response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(Math.max(1, properties.getRetryAfter().toSeconds())));
+            return response.setComplete();
+        }
+
+        var start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> release(exchange, signal, System.nanoTime() - start));
+    }
+
+    private void release(ServerWebExchange exchange, SignalType signal, long rttNanos) {
+        if (signal == SignalType.CANCEL) {
+            limiter.releaseIgnored();
+            return;
+        }
+        var status = exchange.getResponse().getStatusCode();
+        if (signal == SignalType.ON_ERROR || status == HttpStatus.SERVICE_UNAVAILABLE
+                || status == HttpStatus.GATEWAY_TIMEOUT) {
+            limiter.releaseDropped();
+            return;
+        }
+        limiter.release(rttNanos);
+    }
+
+    // under overload every request is rejected, so only one warning per interval summarizes them
+    private void logRejection(ServerWebExchange exchange, String path) {
+        log.debug("Concurrency limit {} reached, rejecting {} {}", limiter.getLimit(),
+                exchange.getRequest().getMethod(), path);
+        rejectedSinceWarn.incrementAndGet();
+        var now = System.nanoTime();
+        var nextWarn = nextRejectionWarnNanos.get();
+        if (now - nextWarn >= 0
+                && nextRejectionWarnNanos.compareAndSet(nextWarn, now + REJECTION_WARN_INTERVAL_NANOS)) {
+            log.warn("Concurrency limit {} reached, rejected {} requests since the last warning",
+                    limiter.getLimit(), rejectedSinceWarn.getAndSet(0));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.reactivespring.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.actuate.metrics.web.reactive.client.WebClientExchangeTags;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the bytes sent to and received from one downstream per uri template, and how many calls to it
+ * are in flight. A call stays in flight until its response body has been read or released, or until the
+ * consumer cancels or fails the exchange, whichever comes first, even when the body was never subscribed.
+ */
+public class DownstreamMetricsExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final String name;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public DownstreamMetricsExchangeFilterFunction(String name, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("movies.client.inflight", inFlight, AtomicInteger::get)
+                .tag("client", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        var uri = WebClientExchangeTags.uri(request);
+        var requestBytes = bytesSummary("movies.client.request.bytes", uri);
+        var responseBytes = bytesSummary("movies.client.response.bytes", uri);
+        return Mono.defer(() -> {
+            var released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    inFlight.decrementAndGet();
+                }
+            };
+            inFlight.incrementAndGet();
+            return next.exchange(countingRequest(request, requestBytes))
+                    .map(response -> countingResponse(response, responseBytes, release))
+                    // a completed exchange is still cancelled by its consumer when it gives up before reading
+                    // the body, which is the only signal left for a body that is never subscribed
+                    .doOnError(ex -> release.run())
+                    .doOnCancel(release);
+        });
+    }
+
+    private ClientRequest countingRequest(ClientRequest request, DistributionSummary requestBytes) {
+        return ClientRequest.from(request)
+                .body((outputMessage, context) -> request.body().insert(new ClientHttpRequestDecorator(outputMessage) {
+                    @Override
+                    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                        var count = new AtomicLong();
+                        return super.writeWith(Flux.from(body)
+                                .doOnNext(buffer -> count.addAndGet(buffer.readableByteCount()))
+                                .doOnComplete(() -> requestBytes.record(count.get())));
+                    }
+
+                    @Override
+                    public Mono<Void> setComplete() {
+                        requestBytes.record(0);
+                        return super.setComplete();
+                    }
+                }, context))
+                .build();
+    }
+
+    private ClientResponse countingResponse(ClientResponse response, DistributionSummary responseBytes,
+                                            Runnable release) {
+        var count = new AtomicLong();
+        return response.mutate()
+                .body(body -> body
+                        .doOnNext(buffer -> count.addAndGet(buffer.readableByteCount()))
+                        .doFinally(signal -> {
+                            responseBytes.record(count.get());
+                            release.run();
+                        }))
+                .build();
+    }
+
+    private DistributionSummary bytesSummary(String metricName, Tag uri) {
+        return DistributionSummary.builder(metricName)
+                .baseUnit("bytes")
+                .tag("client", name)
+                .tags(uri.getKey(), uri.getValue())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,24 @@
+package com.reactivespring.metrics;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.reactive.client.DefaultWebClientExchangeTagsProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+/**
+ * Adds the downstream name to the {@code http.client.requests} timer, so latency can be split per downstream
+ * rather than per host and port.
+ */
+@Component
+public class DownstreamWebClientExchangeTagsProvider extends DefaultWebClientExchangeTagsProvider {
+
+    public static final String CLIENT_ATTRIBUTE = DownstreamWebClientExchangeTagsProvider.class.getName() + ".client";
+
+    @Override
+    public Iterable<Tag> tags(ClientRequest request, ClientResponse response, Throwable throwable) {
+        var client = request.attribute(CLIENT_ATTRIBUTE).map(String::valueOf).orElse("none");
+        return Tags.of(super.tags(request, response, throwable)).and("client", client);
+    }
+}
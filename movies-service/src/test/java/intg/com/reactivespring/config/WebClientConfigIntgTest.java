@@ -0,0 +1,58 @@
+package com.reactivespring.config;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfo.cache.enabled=false",
+                "restClient.http.moviesInfo.maxConnections=7",
+                "restClient.http.moviesInfo.streamResponseTimeout=3m",
+                "restClient.http.reviews.maxConnections=11",
+                "restClient.http.reviews.streamResponseTimeout=4m"
+        }
+)
+public class WebClientConfigIntgTest {
+
+    @Autowired
+    @Qualifier("moviesInfoConnectionProvider")
+    private ConnectionProvider moviesInfoConnectionProvider;
+
+    @Autowired
+    @Qualifier("reviewsConnectionProvider")
+    private ConnectionProvider reviewsConnectionProvider;
+
+    @Autowired
+    private MoviesInfoRestClient moviesInfoRestClient;
+
+    @Autowired
+    private ReviewsRestClient reviewsRestClient;
+
+    @Test
+    void connectionProviders_arePerDownstream() {
+        assertNotSame(moviesInfoConnectionProvider, reviewsConnectionProvider);
+        assertEquals(7, moviesInfoConnectionProvider.maxConnections());
+        assertEquals(11, reviewsConnectionProvider.maxConnections());
+    }
+
+    @Test
+    void restClients_readStreamResponseTimeoutOfTheirDownstream() {
+        assertEquals(Duration.ofMinutes(3), ReflectionTestUtils.getField(moviesInfoRestClient, "streamResponseTimeout"));
+        assertEquals(Duration.ofMinutes(4), ReflectionTestUtils.getField(reviewsRestClient, "streamResponseTimeout"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.reactivespring.controller;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.domain.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWireMock(port = 0)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfourl=http://localhost:${wiremock.server.port}/v1/moviesInfo",
+                "restClient.reviewsurl=http://localhost:${wiremock.server.port}/v1/review",
+                "restClient.moviesInfo.cache.enabled=true",
+                "restClient.moviesInfo.stream.reconnectMinBackoff=100ms",
+                "deadline.routes[/v1/movies/{id}]=10s"
+        }
+)
+public class MoviesControllerCacheIntgTest {
+
+    // the cache updater's stream position outlives a test, so event sequences keep growing across tests
+    private static final AtomicLong sequence = new AtomicLong();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.resetAllRequests();
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody("")));
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+    }
+
+    @Test
+    void retrieveMovieById_servesCachedMovieInfoAndFollowsUpdates() throws InterruptedException {
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        assertEquals("Batman Begins", retrieveMovieName(movieId));
+        assertEquals("Batman Begins", retrieveMovieName(movieId));
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/moviesInfo/" + movieId)));
+
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody("{\"sequence\":" + sequence.incrementAndGet() + ",\"type\":\"UPDATE\",\"movieInfo\":{\"movieInfoId\":\"" + movieId
+                                + "\",\"name\":\"Batman Begins Remastered\",\"year\":2005}}\n")));
+
+        assertEquals("Batman Begins Remastered", awaitUntil(() -> retrieveMovieName(movieId),
+                "Batman Begins Remastered"::equals));
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/moviesInfo/" + movieId)));
+    }
+
+    @Test
+    void retrieveMovieById_evictedByDeleteEvent() throws InterruptedException {
+        var movieId = "def";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        assertEquals("Batman Begins", retrieveMovieName(movieId));
+
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody("{\"sequence\":" + sequence.incrementAndGet() + ",\"type\":\"DELETE\",\"movieInfo\":{\"movieInfoId\":\"" + movieId
+                                + "\"}}\n")));
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)
+                        .withBody("MovieInfo not found")));
+
+        var status = awaitUntil(() -> webTestClient
+                        .get()
+                        .uri("/v1/movies/{id}", movieId)
+                        .exchange()
+                        .returnResult(Movie.class)
+                        .getStatus(),
+                HttpStatus.NOT_FOUND::equals);
+
+        assertEquals(HttpStatus.NOT_FOUND, status);
+    }
+
+    // stream events reach the cache asynchronously, so poll until the response reflects them
+    private <T> T awaitUntil(Supplier<T> supplier, Predicate<T> condition) throws InterruptedException {
+        var result = supplier.get();
+        for (int attempt = 0; attempt < 25 && !condition.test(result); attempt++) {
+            Thread.sleep(200);
+            result = supplier.get();
+        }
+        return result;
+    }
+
+    private String retrieveMovieName(String movieId) {
+        var movie = webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Movie.class)
+                .getResponseBody()
+                .blockFirst();
+        return Objects.requireNonNull(movie).getMovieInfo().getName();
+    }
+}
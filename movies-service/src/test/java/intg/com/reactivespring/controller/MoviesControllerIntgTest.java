@@ -2,28 +2,45 @@ package com.reactivespring.controller;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWireMock(port = 8084)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 @TestPropertySource(
         properties = {
                 "restClient.moviesInfourl=http://localhost:8084/v1/moviesInfo",
-                "restClient.reviewsurl=http://localhost:8084/v1/review"
+                "restClient.reviewsurl=http://localhost:8084/v1/review",
+                "restClient.moviesInfo.cache.enabled=false",
+                "deadline.routes[/v1/movies/{id}]=10s",
+                "restClient.reviews.stream.maxReviews=1"
         }
 )
 public class MoviesControllerIntgTest {
@@ -31,6 +48,14 @@ public class MoviesControllerIntgTest {
     @Autowired
     private WebTestClient webTestClient;
 
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.resetAllRequests();
+    }
+
     @Test
     void retrieveMovieInfo() {
         var movieId = "abc";
@@ -87,4 +112,426 @@ public class MoviesControllerIntgTest {
                     assertEquals("Batman Begins", movie.getMovieInfo().getName());
                 });
     }
+
+    @Test
+    void retrieveMovieInfo_reviews5xx() {
+        var movieId = "def";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("Review service not available")));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert Objects.requireNonNull(movie).getReviewList().size() == 0;
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
+    }
+
+    @Test
+    void retrieveMovieInfo_deadlineExceeded() {
+        var movieId = "ghi";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(1000)));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .header("X-Request-Timeout", "300")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(504);
+        WireMock.verify(getRequestedFor(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .withHeader("X-Request-Timeout", matching("\\d+")));
+    }
+
+    @Test
+    void retrieveMovieInfo_malformedTimeoutHeaderIgnored() {
+        var movieId = "vwx";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .header("X-Request-Timeout", "soon")
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    @Test
+    void retrieveMovieStream() {
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .withQueryParam("live", equalTo("true"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody("{\"sequence\":1,\"movieInfo\":{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}}\n")));
+
+        stubFor(get(urlEqualTo("/v1/review/stream?live=true"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody("{\"reviewId\":\"3\",\"movieInfoId\":1,\"comment\":\"Great\",\"rating\":9.5}\n")));
+
+        stubFor(get(urlEqualTo("/v1/moviesInfo/1"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        var movies = webTestClient
+                .get()
+                .uri("/v1/movies/stream/enriched")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Movie.class)
+                .getResponseBody()
+                .take(2)
+                .collectList()
+                .block();
+
+        assertEquals(2, Objects.requireNonNull(movies).size());
+        movies.forEach(movie -> {
+            assertEquals("Batman Begins", movie.getMovieInfo().getName());
+            assertEquals(2, movie.getReviewList().size());
+        });
+    }
+
+    @Test
+    void retrieveMovieInfos_resumesAfterLastSequence() {
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .withQueryParam("after", absent())
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody(movieInfoEvent(1) + movieInfoEvent(2))));
+
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .withQueryParam("after", equalTo("2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody(movieInfoEvent(2) + movieInfoEvent(3))));
+
+        var movieInfos = webTestClient
+                .get()
+                .uri("/v1/movies/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .take(3)
+                .map(MovieInfo::getMovieInfoId)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("1", "2", "3"), movieInfos);
+    }
+
+    @Test
+    void retrieveMovieInfos_resyncsWhenPositionExpired() {
+        WireMock.resetAllScenarios();
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .inScenario("resync")
+                .whenScenarioStateIs(STARTED)
+                .withQueryParam("after", absent())
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody(movieInfoEvent(1) + movieInfoEvent(2)))
+                .willSetStateTo("expired"));
+
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .withQueryParam("after", equalTo("2"))
+                .willReturn(aResponse()
+                        .withStatus(410)
+                        .withBody("Events after sequence 2 are no longer retained")));
+
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .inScenario("resync")
+                .whenScenarioStateIs("expired")
+                .withQueryParam("after", absent())
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody(movieInfoEvent(5))));
+
+        var movieInfos = webTestClient
+                .get()
+                .uri("/v1/movies/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .take(3)
+                .map(MovieInfo::getMovieInfoId)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("1", "2", "5"), movieInfos);
+    }
+
+    @Test
+    void retrieveMovieInfos_resyncsWhenEpochChanged() {
+        WireMock.resetAllScenarios();
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .inScenario("restart")
+                .whenScenarioStateIs(STARTED)
+                .withQueryParam("after", absent())
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody(movieInfoEvent("before", 1) + movieInfoEvent("before", 2)))
+                .willSetStateTo("restarted"));
+
+        // the restarted movies-info no longer knows the epoch, even though it has published past sequence 2 again
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .withQueryParam("after", equalTo("2"))
+                .withQueryParam("epoch", equalTo("before"))
+                .willReturn(aResponse()
+                        .withStatus(410)
+                        .withBody("Events after sequence 2 of epoch before are not known")));
+
+        stubFor(get(urlPathEqualTo("/v1/moviesInfo/events"))
+                .inScenario("restart")
+                .whenScenarioStateIs("restarted")
+                .withQueryParam("after", absent())
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-ndjson")
+                        .withBody(movieInfoEvent("after", 1))));
+
+        var movieInfos = webTestClient
+                .get()
+                .uri("/v1/movies/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .take(3)
+                .map(MovieInfo::getMovieInfoId)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("1", "2", "1"), movieInfos);
+    }
+
+    private String movieInfoEvent(long sequence) {
+        return "{\"sequence\":" + sequence + ",\"movieInfo\":{\"movieInfoId\":\"" + sequence
+                + "\",\"name\":\"Batman Begins\",\"year\":2005}}\n";
+    }
+
+    private String movieInfoEvent(String epoch, long sequence) {
+        return "{\"epoch\":\"" + epoch + "\",\"sequence\":" + sequence + ",\"movieInfo\":{\"movieInfoId\":\""
+                + sequence + "\",\"name\":\"Batman Begins\",\"year\":2005}}\n";
+    }
+
+    @Test
+    void retrieveMovieById_streamingReviews() {
+        var movieId = "jkl";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .withQueryParam("limit", equalTo("2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}?reviews=stream", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.reviewList.length()").isEqualTo(1)
+                .jsonPath("$.reviewList[0].reviewId").isEqualTo("1")
+                .jsonPath("$.continuation").isEqualTo(Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString("1".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void retrieveMovieById_streamingReviewsNotCutByDeadline() {
+        var movieId = "yza";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(1000)));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}?reviews=stream", movieId)
+                .header("X-Request-Timeout", "300")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.reviewList.length()").isEqualTo(1);
+    }
+
+    @Test
+    void retrieveMovieById_reviewSummary() {
+        var movieId = "mno";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/review/summary"))
+                .withQueryParam("top", equalTo("1"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBody("{\"movieInfoId\":1,\"count\":2,\"averageRating\":8.5,"
+                                + "\"topReviews\":[{\"reviewId\":\"1\",\"movieInfoId\":1,\"comment\":\"Awesome one\",\"rating\":9.0}]}")));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}?reviews=summary&top=1", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.reviewList").doesNotExist()
+                .jsonPath("$.reviewSummary.count").isEqualTo(2)
+                .jsonPath("$.reviewSummary.topReviews.length()").isEqualTo(1);
+        WireMock.verify(getRequestedFor(urlPathEqualTo("/v1/review/summary"))
+                .withHeader("X-Request-Timeout", matching("\\d+")));
+    }
+
+    @Test
+    void retrieveMovieInfo_smile() throws Exception {
+        var movieId = "pqr";
+        var movieInfo = new MovieInfo(movieId, "Batman Begins", 2005, List.of("Christian Bale"),
+                LocalDate.parse("2005-06-15"));
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .withHeader("Accept", containing("application/x-jackson-smile"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/x-jackson-smile")
+                        .withBody(Jackson2ObjectMapperBuilder.smile().build().writeValueAsBytes(movieInfo))));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assertEquals("Batman Begins", Objects.requireNonNull(movie).getMovieInfo().getName());
+                    assertEquals(LocalDate.parse("2005-06-15"), movie.getMovieInfo().getRelease_date());
+                });
+    }
+
+    @Test
+    void retrieveMovieById_streamingReviewsCompressed() {
+        var movieId = "stu";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // the WebTestClient is bound to the application context, so go through the real Netty server with a
+        // client that leaves the body compressed; the streamed response has no Content-Length and is still compressed
+        var contentEncoding = HttpClient.create()
+                .headers(headers -> headers.set("Accept-Encoding", "gzip"))
+                .get()
+                .uri("http://localhost:" + port + "/v1/movies/" + movieId + "?reviews=stream")
+                .responseSingle((response, body) -> Mono.justOrEmpty(response.responseHeaders().get("Content-Encoding")))
+                .block();
+
+        assertEquals("gzip", contentEncoding);
+        WireMock.verify(getRequestedFor(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .withHeader("Accept-Encoding", containing("gzip")));
+    }
+
+    @Test
+    void retrieveMovieInfo_recordsMetrics() {
+        var movieId = "vwx";
+        stubFor(get(urlEqualTo("/v1/moviesInfo/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .value(scrape -> {
+                    assertTrue(scrape.contains("http_server_requests_seconds_bucket"));
+                    assertTrue(scrape.contains("uri=\"/v1/movies/{id}\""));
+                    assertTrue(scrape.contains("http_client_requests_seconds_bucket"));
+                    assertTrue(scrape.contains("client=\"moviesInfo\""));
+                    assertTrue(scrape.contains("uri=\"/v1/moviesInfo/{id}\""));
+                    assertTrue(scrape.contains("uri=\"/v1/review?movieInfoId={movieInfoId}\""));
+                    assertTrue(scrape.contains("movies_client_response_bytes_sum"));
+                    assertTrue(scrape.contains("movies_client_inflight"));
+                    assertTrue(scrape.contains("movies_client_retries_total"));
+                });
+    }
 }
@@ -0,0 +1,152 @@
+package com.reactivespring.controller;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.domain.Movie;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureWireMock(port = 0)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfourl=http://localhost:${wiremock.server.port}/v1/moviesInfo",
+                "restClient.reviewsurl=http://localhost:${wiremock.server.port}/v1/review",
+                "restClient.moviesInfo.cache.enabled=false",
+                "restClient.singleFlight.enabled=false",
+                "deadline.routes[/v1/movies/{id}]=10s",
+                "restClient.reviews.timeout=10s",
+                "restClient.resilience.moviesInfo.circuitBreaker.slidingWindowSize=2",
+                "restClient.resilience.moviesInfo.circuitBreaker.minimumNumberOfCalls=2",
+                "restClient.resilience.moviesInfo.circuitBreaker.waitDurationInOpenState=1m",
+                "restClient.resilience.moviesInfo.bulkhead.maxConcurrentCalls=1",
+                "restClient.resilience.moviesInfo.retry.maxRetries=0",
+                "restClient.resilience.reviews.circuitBreaker.slidingWindowSize=2",
+                "restClient.resilience.reviews.circuitBreaker.minimumNumberOfCalls=2",
+                "restClient.resilience.reviews.circuitBreaker.waitDurationInOpenState=1m",
+                "restClient.resilience.reviews.retry.maxRetries=0"
+        }
+)
+public class MoviesControllerResilienceIntgTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    @Qualifier("moviesInfoCircuitBreaker")
+    private CircuitBreaker moviesInfoCircuitBreaker;
+
+    @Autowired
+    @Qualifier("reviewsCircuitBreaker")
+    private CircuitBreaker reviewsCircuitBreaker;
+
+    @Autowired
+    @Qualifier("moviesInfoBulkhead")
+    private Bulkhead moviesInfoBulkhead;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+        moviesInfoCircuitBreaker.reset();
+        reviewsCircuitBreaker.reset();
+    }
+
+    @Test
+    void retrieveMovieById_moviesInfoCircuitOpen() {
+        stubFor(get(urlPathMatching("/v1/moviesInfo/.*"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("MovieInfo service not available")));
+        stubReviews();
+
+        retrieveMovie("abc").expectStatus().isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        retrieveMovie("abc").expectStatus().isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+
+        assertEquals(CircuitBreaker.State.OPEN, moviesInfoCircuitBreaker.getState());
+        retrieveMovie("abc").expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        WireMock.verify(2, getRequestedFor(urlEqualTo("/v1/moviesInfo/abc")));
+    }
+
+    @Test
+    void retrieveMovieById_moviesInfoBulkheadFull() {
+        stubFor(get(urlPathMatching("/v1/moviesInfo/.*"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(1000)));
+        stubReviews();
+
+        var statuses = Mono.zip(
+                        Mono.fromCallable(() -> retrieveMovie("def").returnResult(Movie.class).getStatus())
+                                .subscribeOn(Schedulers.boundedElastic()),
+                        Mono.fromCallable(() -> retrieveMovie("ghi").returnResult(Movie.class).getStatus())
+                                .subscribeOn(Schedulers.boundedElastic()))
+                .map(tuple -> List.of(tuple.getT1(), tuple.getT2()))
+                .block();
+
+        assertEquals(1, Objects.requireNonNull(statuses).stream().filter(HttpStatus.OK::equals).count());
+        assertEquals(1, statuses.stream().filter(HttpStatus.SERVICE_UNAVAILABLE::equals).count());
+        assertEquals(1, moviesInfoBulkhead.getBulkheadConfig().getMaxConcurrentCalls());
+    }
+
+    @Test
+    void retrieveMovieById_reviewsCircuitOpenDegradesToMovieWithoutReviews() {
+        stubFor(get(urlPathMatching("/v1/moviesInfo/.*"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("Review service not available")));
+
+        for (int i = 0; i < 3; i++) {
+            retrieveMovie("jkl")
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(Movie.class)
+                    .consumeWith(movieEntityExchangeResult -> {
+                        var movie = movieEntityExchangeResult.getResponseBody();
+                        assertEquals("Batman Begins", Objects.requireNonNull(movie).getMovieInfo().getName());
+                        assertEquals(0, movie.getReviewList().size());
+                    });
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, reviewsCircuitBreaker.getState());
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/v1/review")));
+    }
+
+    private WebTestClient.ResponseSpec retrieveMovie(String movieId) {
+        return webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange();
+    }
+
+    private void stubReviews() {
+        stubFor(get(urlPathEqualTo("/v1/review"))
+                .willReturn(aResponse()
+                        .withHeader("Content-type", "application/json")
+                        .withBodyFile("reviews.json")));
+    }
+}
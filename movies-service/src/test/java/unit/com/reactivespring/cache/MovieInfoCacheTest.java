@@ -0,0 +1,111 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieInfoCacheTest {
+
+    MovieInfoCache movieInfoCache = new MovieInfoCache(true, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Test
+    void get_loadsOnceAndServesFromCache() {
+        var loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(movieInfoCache.get("abc", id -> {
+                        loads.incrementAndGet();
+                        return Mono.just(movieInfo(id, "Batman Begins"));
+                    }))
+                    .expectNextMatches(movieInfo -> movieInfo.getName().equals("Batman Begins"))
+                    .verifyComplete();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_loadsWithDeadlineOfItsOwn() {
+        var loadBudget = new AtomicReference<Duration>();
+
+        StepVerifier.create(movieInfoCache.get("abc", id -> Mono.deferContextual(context -> {
+                            loadBudget.set(context.<Deadline>get(Deadline.CONTEXT_KEY).remaining());
+                            return Mono.just(movieInfo(id, "Batman Begins"));
+                        }))
+                        .contextWrite(Context.of(Deadline.CONTEXT_KEY,
+                                Deadline.after(Duration.ofMillis(100), Duration.ofSeconds(5)))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertTrue(loadBudget.get().compareTo(Duration.ofSeconds(4)) > 0);
+    }
+
+    @Test
+    void refresh_replacesCachedEntry() {
+        movieInfoCache.put(movieInfo("abc", "Batman Begins"));
+
+        movieInfoCache.refresh(movieInfo("abc", "Batman Begins Remastered"));
+
+        assertEquals("Batman Begins Remastered", cachedName("abc"));
+    }
+
+    @Test
+    void refresh_ignoresUncachedEntry() {
+        movieInfoCache.refresh(movieInfo("def", "The Dark Knight"));
+
+        assertEquals("loaded", cachedName("def"));
+    }
+
+    @Test
+    void refresh_winsOverLoadInProgress() {
+        var load = Sinks.<MovieInfo>one();
+        var result = movieInfoCache.get("ghi", id -> load.asMono());
+        StepVerifier.create(result)
+                .then(() -> {
+                    movieInfoCache.refresh(movieInfo("ghi", "The Dark Knight Rises"));
+                    load.tryEmitValue(movieInfo("ghi", "The Dark Knight"));
+                })
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals("The Dark Knight Rises", cachedName("ghi"));
+    }
+
+    @Test
+    void evict_dropsLoadInProgress() {
+        var load = Sinks.<MovieInfo>one();
+        StepVerifier.create(movieInfoCache.get("jkl", id -> load.asMono()))
+                .then(() -> {
+                    movieInfoCache.evict("jkl");
+                    load.tryEmitValue(movieInfo("jkl", "The Dark Knight"));
+                })
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals("loaded", cachedName("jkl"));
+    }
+
+    private String cachedName(String movieId) {
+        return movieInfoCache.get(movieId, id -> Mono.just(movieInfo(id, "loaded")))
+                .map(MovieInfo::getName)
+                .block();
+    }
+
+    private MovieInfo movieInfo(String movieId, String name) {
+        return new MovieInfo(movieId, name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+    }
+}
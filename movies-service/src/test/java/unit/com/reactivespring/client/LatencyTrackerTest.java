@@ -0,0 +1,35 @@
+package com.reactivespring.client;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyTrackerTest {
+
+    @Test
+    void getPercentileNanos_unknownUntilEnoughSamples() {
+        var latencyTracker = new LatencyTracker(1000, 95);
+
+        for (int i = 0; i < 99; i++) {
+            latencyTracker.record(i);
+        }
+
+        assertEquals(-1, latencyTracker.getPercentileNanos());
+    }
+
+    @Test
+    void record_fromConcurrentThreads() {
+        var latencyTracker = new LatencyTracker(1000, 95);
+
+        Flux.range(1, 1000)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .doOnNext(latencyTracker::record)
+                .sequential()
+                .blockLast();
+
+        assertEquals(950, latencyTracker.getPercentileNanos());
+    }
+}
@@ -0,0 +1,105 @@
+package com.reactivespring.client;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestBatcherTest {
+
+    @Test
+    void load_collapsesRequestsIntoOneBatch() {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        var batcher = new RequestBatcher<String, String>("test", keys -> {
+            batches.add(new ArrayList<>(keys));
+            return Mono.just(keys.stream().collect(Collectors.toMap(Function.identity(), key -> "value-" + key)));
+        }, 10, Duration.ofMillis(50));
+
+        var results = Flux.merge(batcher.load("1"), batcher.load("2"), batcher.load("1"));
+
+        StepVerifier.create(results.collectList())
+                .assertNext(values -> assertEquals(3, values.size()))
+                .verifyComplete();
+        assertEquals(1, batches.size());
+        assertEquals(List.of("1", "2"), batches.get(0));
+    }
+
+    @Test
+    void load_missingKeyCompletesEmpty() {
+        var batcher = new RequestBatcher<String, String>("test",
+                keys -> Mono.just(Map.of()), 10, Duration.ofMillis(10));
+
+        StepVerifier.create(batcher.load("1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void load_batchFailurePropagatesToEveryCaller() {
+        var batcher = new RequestBatcher<String, String>("test",
+                keys -> Mono.error(new RuntimeException("downstream failed")), 10, Duration.ofMillis(10));
+
+        StepVerifier.create(batcher.load("1"))
+                .expectErrorMessage("downstream failed")
+                .verify();
+    }
+
+    @Test
+    void load_cancelledCallerIsLeftOutOfBatch() {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        var batcher = new RequestBatcher<String, String>("test", keys -> {
+            batches.add(new ArrayList<>(keys));
+            return Mono.just(keys.stream().collect(Collectors.toMap(Function.identity(), key -> "value-" + key)));
+        }, 10, Duration.ofMillis(100));
+
+        batcher.load("1").subscribe().dispose();
+
+        StepVerifier.create(batcher.load("2"))
+                .expectNext("value-2")
+                .verifyComplete();
+        assertEquals(List.of(List.of("2")), batches);
+    }
+
+    @Test
+    void dispose_failsWaitingAndLaterCallers() {
+        var batcher = new RequestBatcher<String, String>("test", keys -> Mono.never(), 2, Duration.ofHours(1));
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+        // "1" and "2" fill a batch whose loader never answers, "3" is still waiting for the next window
+        List.of("1", "2", "3").forEach(key -> batcher.load(key).subscribe(value -> { }, errors::add));
+        batcher.dispose();
+
+        assertEquals(3, errors.size());
+        errors.forEach(ex -> assertEquals("Request batcher test is disposed", ex.getMessage()));
+        StepVerifier.create(batcher.load("4"))
+                .expectErrorMessage("Request batcher test is disposed")
+                .verify();
+    }
+
+    @Test
+    void load_concurrentCallersAreAllBatched() {
+        var batcher = new RequestBatcher<Integer, Integer>("test",
+                keys -> Mono.just(keys.stream().collect(Collectors.toMap(Function.identity(), key -> key))),
+                50, Duration.ofMillis(20));
+
+        var results = Flux.range(0, 500)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(batcher::load)
+                .sequential();
+
+        StepVerifier.create(results.count())
+                .expectNext(500L)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,31 @@
+package com.reactivespring.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    @Test
+    void tryWithdraw_stopsWhenBudgetIsSpent() {
+        var retryBudget = new RetryBudget(0.5, 2);
+
+        assertTrue(retryBudget.tryWithdraw());
+        assertTrue(retryBudget.tryWithdraw());
+        assertFalse(retryBudget.tryWithdraw());
+    }
+
+    @Test
+    void deposit_refillsBudgetFromLiveTraffic() {
+        var retryBudget = new RetryBudget(0.5, 2);
+        retryBudget.tryWithdraw();
+        retryBudget.tryWithdraw();
+
+        retryBudget.deposit();
+        assertFalse(retryBudget.tryWithdraw());
+
+        retryBudget.deposit();
+        assertTrue(retryBudget.tryWithdraw());
+    }
+}
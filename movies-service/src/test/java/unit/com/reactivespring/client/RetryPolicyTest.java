@@ -0,0 +1,150 @@
+package com.reactivespring.client;
+
+import com.reactivespring.config.ResilienceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryPolicyTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void execute_retriesWithBackoffUntilSuccess() {
+        var attempts = new AtomicInteger();
+        var attempt = Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.<String>error(new IllegalStateException("unavailable"))
+                : Mono.just("ok"));
+
+        StepVerifier.create(retryPolicy(retry(3, 10), hedge(false, 0)).execute(attempt, ex -> true))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertEquals(3, attempts.get());
+        assertEquals(2, counter("movies.client.retries", "retried"));
+    }
+
+    @Test
+    void execute_doesNotRetryNonRetryableFailures() {
+        var attempts = new AtomicInteger();
+        var attempt = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new IllegalArgumentException("bad request"));
+        });
+
+        StepVerifier.create(retryPolicy(retry(3, 10), hedge(false, 0))
+                        .execute(attempt, ex -> ex instanceof IllegalStateException))
+                .verifyError(IllegalArgumentException.class);
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void execute_stopsRetryingWhenBudgetIsSpent() {
+        var retry = retry(5, 10);
+        retry.setBudgetDepositPerRequest(0);
+        retry.setBudgetMaxTokens(1);
+        var attempts = new AtomicInteger();
+        var attempt = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("unavailable"));
+        });
+
+        StepVerifier.create(retryPolicy(retry, hedge(false, 0)).execute(attempt, ex -> true))
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, counter("movies.client.retries", "retried"));
+        assertEquals(1, counter("movies.client.retries", "budget_exhausted"));
+    }
+
+    @Test
+    void execute_hedgeWinsOverSlowAttempt() {
+        var attempts = new AtomicInteger();
+        var attempt = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.just("slow").delayElement(Duration.ofSeconds(5))
+                : Mono.just("hedge"));
+
+        StepVerifier.create(retryPolicy(retry(0, 10), hedge(true, 50)).execute(attempt, ex -> true))
+                .expectNext("hedge")
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, meterRegistry.get("movies.client.hedges").counter().count());
+    }
+
+    @Test
+    void execute_emptyResultIsNotHedged() {
+        var attempts = new AtomicInteger();
+        var attempt = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>empty();
+        });
+
+        StepVerifier.create(retryPolicy(retry(0, 10), hedge(true, 50)).execute(attempt, ex -> true))
+                .verifyComplete();
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void execute_failureBeforeHedgeDelaySurfacesWithoutHedging() {
+        var attempts = new AtomicInteger();
+        var attempt = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("unavailable"));
+        });
+
+        StepVerifier.create(retryPolicy(retry(0, 10), hedge(true, 1000)).execute(attempt, ex -> true))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofMillis(500));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, meterRegistry.get("movies.client.hedges").counter().count());
+    }
+
+    @Test
+    void execute_hedgesFluxAsWholeResponse() {
+        var attempts = new AtomicInteger();
+        var attempt = Flux.defer(() -> attempts.incrementAndGet() == 1
+                ? Flux.just("slow-1", "slow-2").delayElements(Duration.ofSeconds(5))
+                : Flux.just("hedge-1", "hedge-2"));
+
+        StepVerifier.create(retryPolicy(retry(0, 10), hedge(true, 50)).execute(attempt, ex -> true).collectList())
+                .expectNext(List.of("hedge-1", "hedge-2"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    private RetryPolicy retryPolicy(ResilienceProperties.Retry retry, ResilienceProperties.Hedge hedge) {
+        return new RetryPolicy("test", retry, hedge, meterRegistry);
+    }
+
+    private ResilienceProperties.Retry retry(int maxRetries, long minBackoffMillis) {
+        var retry = new ResilienceProperties.Retry();
+        retry.setMaxRetries(maxRetries);
+        retry.setMinBackoff(Duration.ofMillis(minBackoffMillis));
+        retry.setMaxBackoff(Duration.ofMillis(minBackoffMillis * 4));
+        return retry;
+    }
+
+    private ResilienceProperties.Hedge hedge(boolean enabled, long minDelayMillis) {
+        var hedge = new ResilienceProperties.Hedge();
+        hedge.setEnabled(enabled);
+        hedge.setMinDelay(Duration.ofMillis(minDelayMillis));
+        return hedge;
+    }
+
+    private double counter(String name, String outcome) {
+        return meterRegistry.get(name).tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,84 @@
+package com.reactivespring.client;
+
+import com.reactivespring.deadline.Deadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void execute_sharesInFlightCall() {
+        var singleFlight = new SingleFlight<String, String>("test", new SimpleMeterRegistry());
+        var calls = new AtomicInteger();
+
+        var results = Flux.merge(
+                singleFlight.execute("abc", () -> slowCall(calls)),
+                singleFlight.execute("abc", () -> slowCall(calls)),
+                singleFlight.execute("abc", () -> slowCall(calls)));
+
+        StepVerifier.create(results)
+                .expectNext("value", "value", "value")
+                .verifyComplete();
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getExecutedCount());
+        assertEquals(2, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    void execute_runsAgainAfterCompletion() {
+        var singleFlight = new SingleFlight<String, String>("test", new SimpleMeterRegistry());
+        var calls = new AtomicInteger();
+
+        singleFlight.execute("abc", () -> slowCall(calls)).block();
+        singleFlight.execute("abc", () -> slowCall(calls)).block();
+
+        assertEquals(2, calls.get());
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    void execute_appliesEachCallersOwnDeadline() {
+        var singleFlight = new SingleFlight<String, String>("test", new SimpleMeterRegistry());
+        var calls = new AtomicInteger();
+        var sharedCallBudgets = new CopyOnWriteArrayList<Duration>();
+        Supplier<Mono<String>> call = () -> Mono.deferContextual(context -> {
+            sharedCallBudgets.add(context.<Deadline>get(Deadline.CONTEXT_KEY).remaining());
+            return slowCall(calls);
+        });
+
+        var impatient = singleFlight.execute("abc", call)
+                .contextWrite(Context.of(Deadline.CONTEXT_KEY,
+                        Deadline.after(Duration.ofMillis(10), Duration.ofSeconds(5))));
+        var patient = singleFlight.execute("abc", call)
+                .contextWrite(Context.of(Deadline.CONTEXT_KEY, Deadline.after(Duration.ofSeconds(5))));
+
+        StepVerifier.create(Flux.merge(impatient.onErrorReturn(TimeoutException.class, "timeout"), patient))
+                .expectNext("timeout", "value")
+                .verifyComplete();
+        assertEquals(1, calls.get());
+        // the shared call gets the route budget of the caller that started it, not that caller's 10ms
+        assertEquals(1, sharedCallBudgets.size());
+        assertTrue(sharedCallBudgets.get(0).compareTo(Duration.ofSeconds(4)) > 0);
+    }
+
+    private Mono<String> slowCall(AtomicInteger calls) {
+        return Mono.fromCallable(() -> {
+                    calls.incrementAndGet();
+                    return "value";
+                })
+                .delayElement(Duration.ofMillis(50));
+    }
+}
@@ -0,0 +1,71 @@
+package com.reactivespring.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares bytes on the wire and decode throughput of JSON and Smile for the payloads exchanged with
+ * the downstream services. Excluded from the regular build, run it with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class CodecBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 100_000;
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+
+    @Test
+    void movieInfo() throws Exception {
+        var movieInfo = new MovieInfo("61a7c1ed4e6e1b2a3c4d5e6f", "The Dark Knight", 2008,
+                List.of("Christian Bale", "Heath Ledger", "Aaron Eckhart", "Michael Caine"),
+                LocalDate.parse("2008-07-18"));
+
+        compare("MovieInfo", movieInfo, MovieInfo.class);
+    }
+
+    @Test
+    void reviews() throws Exception {
+        var reviews = new ArrayList<Review>();
+        for (int i = 0; i < 100; i++) {
+            reviews.add(new Review(String.valueOf(i), 1L, "Awesome movie, would watch again " + i, 8.5));
+        }
+
+        compare("100 Reviews", reviews.toArray(new Review[0]), Review[].class);
+    }
+
+    private <T> void compare(String payload, T value, Class<T> type) throws Exception {
+        var json = jsonMapper.writeValueAsBytes(value);
+        var smile = smileMapper.writeValueAsBytes(value);
+
+        var jsonOpsPerSecond = decodeThroughput(jsonMapper, json, type);
+        var smileOpsPerSecond = decodeThroughput(smileMapper, smile, type);
+
+        System.out.printf("%s: json %d bytes, %.0f decodes/s | smile %d bytes, %.0f decodes/s%n",
+                payload, json.length, jsonOpsPerSecond, smile.length, smileOpsPerSecond);
+        assertTrue(smile.length < json.length);
+    }
+
+    private double decodeThroughput(ObjectMapper mapper, byte[] bytes, Class<?> type) throws Exception {
+        var reader = mapper.readerFor(type);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            reader.readValue(bytes);
+        }
+        var start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            reader.readValue(bytes);
+        }
+        return MEASURED_ITERATIONS / ((System.nanoTime() - start) / 1e9);
+    }
+}
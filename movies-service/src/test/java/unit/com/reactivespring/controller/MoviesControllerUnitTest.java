@@ -1,4 +1,54 @@
 package com.reactivespring.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 public class MoviesControllerUnitTest {
+
+    private final MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+    private final ReviewsRestClient reviewsRestClient = mock(ReviewsRestClient.class);
+    private final MoviesController moviesController =
+            new MoviesController(moviesInfoRestClient, reviewsRestClient, new ObjectMapper());
+
+    @Test
+    void retrieveMovieStream_keepsTheOrderOfEachMovie() {
+        ReflectionTestUtils.setField(moviesController, "enrichedStreamConcurrency", 8);
+        when(moviesInfoRestClient.retrieveLiveMovieInfoStream()).thenReturn(Flux.just(
+                movieInfo("1", "Batman Begins"), movieInfo("1", "Batman Returns"),
+                movieInfo("1", "Batman Forever"), movieInfo("2", "The Dark Knight")));
+        when(reviewsRestClient.retrieveReviewStream()).thenReturn(Flux.never());
+        // the reviews of the first event arrive last, the later events of that movie must still wait for them
+        when(reviewsRestClient.retrieveReviews("1"))
+                .thenReturn(Flux.<Review>empty().delaySubscription(Duration.ofMillis(200)))
+                .thenReturn(Flux.empty());
+        when(reviewsRestClient.retrieveReviews("2")).thenReturn(Flux.empty());
+
+        // "Batman Returns" arrived while "Batman Begins" was enriched and was replaced by "Batman Forever"
+        StepVerifier.create(moviesController.retrieveMovieStream()
+                        .map(movie -> movie.getMovieInfo().getName()))
+                .expectNext("The Dark Knight", "Batman Begins", "Batman Forever")
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        verify(reviewsRestClient, times(2)).retrieveReviews("1");
+    }
+
+    private MovieInfo movieInfo(String id, String name) {
+        return new MovieInfo(id, name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+    }
 }
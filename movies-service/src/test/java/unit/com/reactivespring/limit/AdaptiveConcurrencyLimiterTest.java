@@ -0,0 +1,71 @@
+package com.reactivespring.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void tryAcquire_rejectsAboveLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(properties(2));
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.releaseIgnored();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void release_limitFollowsLatency() {
+        var limiter = new AdaptiveConcurrencyLimiter(properties(20));
+
+        for (int i = 0; i < 50; i++) {
+            saturatedSample(limiter, 10);
+        }
+        var grownLimit = limiter.getLimit();
+        assertTrue(grownLimit > 20);
+
+        for (int i = 0; i < 20; i++) {
+            saturatedSample(limiter, 100);
+        }
+        assertTrue(limiter.getLimit() < grownLimit);
+    }
+
+    @Test
+    void releaseDropped_backsOffToMinLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(properties(20));
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.releaseDropped();
+        }
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    // fills the limit, so the sample is taken while the limit is actually reached
+    private static void saturatedSample(AdaptiveConcurrencyLimiter limiter, long rttMillis) {
+        while (limiter.tryAcquire()) {
+            // acquire until rejected
+        }
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        while (limiter.getInFlight() > 0) {
+            limiter.releaseIgnored();
+        }
+    }
+
+    private static ConcurrencyLimitProperties properties(int initialLimit) {
+        var properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(5);
+        properties.setMaxLimit(200);
+        return properties;
+    }
+}
@@ -0,0 +1,105 @@
+package com.reactivespring.limit;
+
+import com.reactivespring.config.StreamingRoutes;
+import com.reactivespring.config.StreamingRoutesProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitWebFilterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    Sinks.Empty<Void> release = Sinks.empty();
+    CountDownLatch held = new CountDownLatch(1);
+    WebTestClient webTestClient;
+    CompletableFuture<Void> heldRequest;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        var properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(1);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(1);
+        properties.setRetryAfter(Duration.ofSeconds(3));
+        webTestClient = WebTestClient
+                .bindToWebHandler(exchange -> {
+                    var ok = exchange.getResponse().writeWith(Mono.fromSupplier(() ->
+                            DefaultDataBufferFactory.sharedInstance.wrap("ok".getBytes(StandardCharsets.UTF_8))));
+                    if (!exchange.getRequest().getPath().value().equals("/v1/movies/held")) {
+                        return ok;
+                    }
+                    held.countDown();
+                    return release.asMono().then(ok);
+                })
+                .webFilter(new ConcurrencyLimitWebFilter(properties,
+                        new StreamingRoutes(new StreamingRoutesProperties()), meterRegistry))
+                .configureClient()
+                .responseTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // occupies the only permit until the test releases it
+        heldRequest = CompletableFuture.runAsync(() -> webTestClient
+                .get()
+                .uri("/v1/movies/held")
+                .exchange()
+                .expectStatus()
+                .isOk());
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.tryEmitEmpty();
+        heldRequest.join();
+    }
+
+    @Test
+    void filter_rejectsAboveLimitWithRetryAfter() {
+        webTestClient
+                .get()
+                .uri("/v1/movies/abc")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader()
+                .valueEquals(HttpHeaders.RETRY_AFTER, "3");
+
+        assertEquals(1, meterRegistry.get("movies.concurrency.rejected").counter().count());
+        assertEquals(1, meterRegistry.get("movies.concurrency.inflight").gauge().value());
+        assertEquals(1, meterRegistry.get("movies.concurrency.limit").gauge().value());
+
+        release.tryEmitEmpty();
+        heldRequest.join();
+        assertEquals(0, meterRegistry.get("movies.concurrency.inflight").gauge().value());
+    }
+
+    @Test
+    void filter_streamingRoutesAndVariantsBypassTheLimit() {
+        for (var uri : new String[]{"/v1/movies/stream", "/v1/movies/abc?reviews=stream"}) {
+            webTestClient
+                    .get()
+                    .uri(uri)
+                    .exchange()
+                    .expectStatus()
+                    .isOk();
+        }
+
+        assertEquals(0, meterRegistry.get("movies.concurrency.rejected").counter().count());
+    }
+}
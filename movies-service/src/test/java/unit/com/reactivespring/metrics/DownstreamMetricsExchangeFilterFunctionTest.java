@@ -0,0 +1,100 @@
+package com.reactivespring.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DownstreamMetricsExchangeFilterFunctionTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void filter_releasesInFlightWhenBodyIsRead() {
+        var webClient = webClient(HttpStatus.OK, Flux.just(buffer("ok")));
+
+        StepVerifier.create(webClient.get().uri("/v1/moviesInfo/abc").retrieve().bodyToMono(String.class))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertEquals(0, inFlight());
+        assertEquals(2, meterRegistry.get("movies.client.response.bytes").summary().totalAmount());
+    }
+
+    @Test
+    void filter_releasesInFlightWhenBodyIsNeverSubscribed() {
+        var webClient = webClient(HttpStatus.OK, Flux.just(buffer("ok")));
+
+        StepVerifier.create(webClient.get().uri("/v1/moviesInfo/abc").exchangeToMono(response -> Mono.just("ignored")))
+                .expectNext("ignored")
+                .verifyComplete();
+
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void filter_releasesInFlightWhenErrorStatusBodyIsNotRead() {
+        var webClient = webClient(HttpStatus.SERVICE_UNAVAILABLE, Flux.just(buffer("unavailable")));
+
+        StepVerifier.create(webClient.get().uri("/v1/moviesInfo/abc").retrieve()
+                        .onStatus(HttpStatus::is5xxServerError, response -> Mono.just(new IllegalStateException()))
+                        .bodyToMono(String.class))
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void filter_releasesInFlightWhenCancelledBeforeBodyIsSubscribed() {
+        var webClient = webClient(HttpStatus.OK, Flux.never());
+
+        StepVerifier.create(webClient.get().uri("/v1/moviesInfo/abc").exchangeToMono(response -> Mono.never()))
+                .expectSubscription()
+                .then(() -> assertEquals(1, inFlight()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void filter_releasesInFlightWhenBodyTimesOut() {
+        var webClient = webClient(HttpStatus.OK, Flux.never());
+
+        StepVerifier.create(webClient.get().uri("/v1/moviesInfo/abc").retrieve().bodyToMono(String.class)
+                        .timeout(Duration.ofMillis(50)))
+                .verifyError();
+
+        assertEquals(0, inFlight());
+    }
+
+    private WebClient webClient(HttpStatus status, Flux<DataBuffer> body) {
+        return WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(status)
+                        .header("Content-Type", MediaType.TEXT_PLAIN_VALUE)
+                        .body(body)
+                        .build()))
+                .filter(new DownstreamMetricsExchangeFilterFunction("moviesInfo", meterRegistry))
+                .build();
+    }
+
+    private DataBuffer buffer(String value) {
+        return new DefaultDataBufferFactory().wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("movies.client.inflight").gauge().value();
+    }
+}
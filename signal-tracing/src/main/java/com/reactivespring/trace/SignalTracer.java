@@ -0,0 +1,202 @@
+package com.reactivespring.trace;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Replaces {@code .log()} on hot pipelines. A sampled subscription to an enabled route records one trace
+ * when it terminates: the time to its first element, its duration and how many elements it emitted. Traces
+ * go to a bounded buffer that a daemon thread, started with the bean, writes to the log, so the pipeline never
+ * blocks on I/O.
+ */
+@Component
+@EnableConfigurationProperties(SignalTracingProperties.class)
+@Slf4j
+public class SignalTracer {
+
+    private final BlockingQueue<SignalTrace> buffer;
+    private final Map<String, Boolean> routes;
+    private final AtomicLong tracedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile Thread writer;
+    private volatile boolean enabled;
+    private volatile double samplePercentage;
+
+    public SignalTracer(SignalTracingProperties properties) {
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferSize());
+        this.routes = new ConcurrentHashMap<>(properties.getRoutes());
+        this.enabled = properties.isEnabled();
+        this.samplePercentage = properties.getSamplePercentage();
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(this::writeTraces, "signal-tracer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (writer != null) {
+            writer.interrupt();
+            writer = null;
+        }
+    }
+
+    public boolean isRunning() {
+        var current = writer;
+        return current != null && current.isAlive();
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> flux(String route) {
+        return source -> Flux.defer(() -> {
+            if (!isSampled(route)) {
+                return source;
+            }
+            var trace = new Trace(route);
+            return source
+                    .doOnSubscribe(subscription -> trace.start())
+                    .doOnNext(value -> trace.next())
+                    .doOnComplete(() -> trace.end("onComplete", null))
+                    .doOnError(ex -> trace.end("onError", ex))
+                    .doOnCancel(() -> trace.end("cancel", null));
+        });
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(String route) {
+        return source -> Mono.defer(() -> {
+            if (!isSampled(route)) {
+                return source;
+            }
+            var trace = new Trace(route);
+            return source
+                    .doOnSubscribe(subscription -> trace.start())
+                    .doOnNext(value -> trace.next())
+                    .doOnSuccess(value -> trace.end("onComplete", null))
+                    .doOnError(ex -> trace.end("onError", ex))
+                    .doOnCancel(() -> trace.end("cancel", null));
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSamplePercentage() {
+        return samplePercentage;
+    }
+
+    public void setSamplePercentage(double samplePercentage) {
+        this.samplePercentage = samplePercentage;
+    }
+
+    public Map<String, Boolean> getRoutes() {
+        return Map.copyOf(routes);
+    }
+
+    public void setRouteEnabled(String route, boolean enabled) {
+        routes.put(route, enabled);
+    }
+
+    public void resetRoute(String route) {
+        routes.remove(route);
+    }
+
+    public long getTracedCount() {
+        return tracedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private boolean isSampled(String route) {
+        return routes.getOrDefault(route, enabled)
+                && ThreadLocalRandom.current().nextDouble(100) < samplePercentage;
+    }
+
+    private void record(SignalTrace signalTrace) {
+        tracedCount.incrementAndGet();
+        if (!buffer.offer(signalTrace)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    private void writeTraces() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                var trace = buffer.take();
+                log.info("route={} signal={} firstElementMicros={} durationMicros={} elements={} error={}",
+                        trace.getRoute(), trace.getSignal(), trace.getFirstElementMicros(),
+                        trace.getDurationMicros(), trace.getElements(), trace.getError());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Value
+    static class SignalTrace {
+        String route;
+        String signal;
+        long firstElementMicros;
+        long durationMicros;
+        long elements;
+        String error;
+    }
+
+    // signals of one subscription are serialized, so the fields need no synchronization beyond the ended flag
+    private class Trace {
+        private final String route;
+        private long startNanos;
+        private long firstElementNanos = -1;
+        private long elements;
+        private boolean ended;
+
+        Trace(String route) {
+            this.route = route;
+        }
+
+        void start() {
+            startNanos = System.nanoTime();
+        }
+
+        void next() {
+            if (elements++ == 0) {
+                firstElementNanos = System.nanoTime() - startNanos;
+            }
+        }
+
+        synchronized void end(String signal, Throwable error) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            var firstElementMicros = firstElementNanos < 0 ? -1 : firstElementNanos / 1000;
+            record(new SignalTrace(route, signal, firstElementMicros, (System.nanoTime() - startNanos) / 1000,
+                    elements, error == null ? null : error.toString()));
+        }
+    }
+}
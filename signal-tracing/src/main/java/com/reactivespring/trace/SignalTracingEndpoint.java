@@ -0,0 +1,55 @@
+package com.reactivespring.trace;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Switches signal tracing at runtime, globally or per route, under {@code /actuator/signaltracing}.
+ */
+@Component
+@Endpoint(id = "signaltracing")
+public class SignalTracingEndpoint {
+
+    private final SignalTracer signalTracer;
+
+    public SignalTracingEndpoint(SignalTracer signalTracer) {
+        this.signalTracer = signalTracer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> tracing() {
+        return Map.of(
+                "enabled", signalTracer.isEnabled(),
+                "samplePercentage", signalTracer.getSamplePercentage(),
+                "routes", signalTracer.getRoutes(),
+                "traced", signalTracer.getTracedCount(),
+                "dropped", signalTracer.getDroppedCount());
+    }
+
+    @WriteOperation
+    public void configure(@Nullable Boolean enabled, @Nullable Double samplePercentage) {
+        if (enabled != null) {
+            signalTracer.setEnabled(enabled);
+        }
+        if (samplePercentage != null) {
+            signalTracer.setSamplePercentage(samplePercentage);
+        }
+    }
+
+    @WriteOperation
+    public void configureRoute(@Selector String route, boolean enabled) {
+        signalTracer.setRouteEnabled(route, enabled);
+    }
+
+    @DeleteOperation
+    public void resetRoute(@Selector String route) {
+        signalTracer.resetRoute(route);
+    }
+}
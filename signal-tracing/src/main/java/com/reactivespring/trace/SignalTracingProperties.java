@@ -0,0 +1,32 @@
+package com.reactivespring.trace;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "tracing.signals")
+public class SignalTracingProperties {
+
+    /**
+     * Whether routes without an explicit setting are traced.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Percentage of subscriptions to a traced route that are recorded.
+     */
+    private double samplePercentage = 1.0;
+
+    /**
+     * Traces waiting to be written; traces arriving while it is full are dropped.
+     */
+    private int bufferSize = 1024;
+
+    /**
+     * Per-route overrides of {@link #enabled}.
+     */
+    private Map<String, Boolean> routes = new LinkedHashMap<>();
+}
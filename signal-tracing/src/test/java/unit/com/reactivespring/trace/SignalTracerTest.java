@@ -0,0 +1,58 @@
+package com.reactivespring.trace;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignalTracerTest {
+
+    @Test
+    void flux_disabledRouteIsNotTraced() {
+        var signalTracer = new SignalTracer(new SignalTracingProperties());
+
+        StepVerifier.create(Flux.just(1, 2, 3).transform(signalTracer.flux("retrieveReviews")))
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+        assertEquals(0, signalTracer.getTracedCount());
+    }
+
+    @Test
+    void mono_enabledRouteIsTracedOncePerSubscription() {
+        var properties = new SignalTracingProperties();
+        properties.setSamplePercentage(100);
+        var signalTracer = new SignalTracer(properties);
+        signalTracer.setRouteEnabled("retrieveMovieInfo", true);
+
+        var traced = Mono.just("value").transform(signalTracer.mono("retrieveMovieInfo"));
+        StepVerifier.create(traced)
+                .expectNext("value")
+                .verifyComplete();
+        StepVerifier.create(Mono.just("value").transform(signalTracer.mono("retrieveReviews")))
+                .expectNext("value")
+                .verifyComplete();
+        assertEquals(1, signalTracer.getTracedCount());
+    }
+
+    @Test
+    void writerRunsWithTheBeanLifecycle() {
+        var signalTracer = new AtomicReference<SignalTracer>();
+
+        new ApplicationContextRunner()
+                .withUserConfiguration(SignalTracer.class)
+                .run(context -> {
+                    signalTracer.set(context.getBean(SignalTracer.class));
+                    assertTrue(signalTracer.get().isRunning());
+                });
+
+        assertFalse(signalTracer.get().isRunning());
+        assertFalse(new SignalTracer(new SignalTracingProperties()).isRunning());
+    }
+}